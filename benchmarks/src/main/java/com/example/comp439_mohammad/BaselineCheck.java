@@ -0,0 +1,116 @@
+package com.example.comp439_mohammad;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a JMH CSV result ({@code -rf csv}) with the checked-in baseline and exits
+ * with status 1 if any benchmark got slower, or allocates more per operation, by more
+ * than the tolerance (default 10%). Throughput rows ({@code ops/s}, and the tokens/s and
+ * lines/s counters) must not drop; {@code gc.alloc.rate.norm} rows must not grow.
+ * Other profiler rows are ignored. If the baseline does not exist yet, the current
+ * result is copied there.
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.example.comp439_mohammad.BaselineCheck baseline.csv current.csv [tolerance%]
+ * </pre>
+ */
+public final class BaselineCheck {
+
+    private BaselineCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineCheck baseline.csv current.csv [tolerance%]");
+            System.exit(2);
+        }
+        Path baselinePath = Path.of(args[0]);
+        Path currentPath = Path.of(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+
+        if (!Files.exists(baselinePath)) {
+            Files.copy(currentPath, baselinePath, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("No baseline yet; recorded " + currentPath + " as " + baselinePath);
+            return;
+        }
+
+        Map<String, double[]> baseline = read(baselinePath);
+        Map<String, double[]> current = read(currentPath);
+        int regressions = 0;
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("new        %s: %.1f%n", entry.getKey(), entry.getValue()[0]);
+                continue;
+            }
+            double now = entry.getValue()[0];
+            boolean higherIsBetter = entry.getValue()[1] > 0;
+            double change = (now - before[0]) / before[0];
+            boolean regressed = higherIsBetter ? change < -tolerance : change > tolerance;
+            if (regressed) regressions++;
+            System.out.printf("%-10s %s: %.1f -> %.1f (%+.1f%%)%n",
+                    regressed ? "REGRESSED" : "ok", entry.getKey(), before[0], now, change * 100);
+        }
+        System.out.println(regressions + " regressions");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    /**
+     * Benchmark name plus parameters, mapped to {score, 1 if higher is better else -1}.
+     */
+    private static Map<String, double[]> read(Path csv) throws IOException {
+        List<String> lines = Files.readAllLines(csv);
+        Map<String, double[]> rows = new LinkedHashMap<>();
+        if (lines.isEmpty()) return rows;
+        List<String> header = fields(lines.get(0));
+        int benchmark = header.indexOf("Benchmark");
+        int score = header.indexOf("Score");
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> row = fields(line);
+            if (row.size() < header.size()) continue;
+            String name = row.get(benchmark);
+            double direction;
+            if (!name.contains(":") || name.endsWith(":tokens") || name.endsWith(":lines")) {
+                direction = 1;
+            } else if (name.endsWith("gc.alloc.rate.norm")) {
+                direction = -1;
+            } else {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(name);
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ")) {
+                    key.append(' ').append(header.get(i).substring(7)).append('=').append(row.get(i));
+                }
+            }
+            rows.put(key.toString(), new double[] {Double.parseDouble(row.get(score).replace(',', '.')), direction});
+        }
+        return rows;
+    }
+
+    private static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
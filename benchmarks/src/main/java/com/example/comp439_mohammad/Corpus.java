@@ -0,0 +1,78 @@
+package com.example.comp439_mohammad;
+
+/**
+ * Synthetic programs for the benchmarks, each stressing one shape of input.
+ */
+final class Corpus {
+
+    static final String LONG_EXPRESSIONS = "longExpressions";
+    static final String DEEP_NESTING = "deepNesting";
+    static final String MANY_FUNCTIONS = "manyFunctions";
+    static final String HUGE_VAR_LISTS = "hugeVarLists";
+
+    private Corpus() {
+    }
+
+    /**
+     * A valid program of roughly {@code lines} lines.
+     */
+    static String generate(String shape, int lines) {
+        StringBuilder out = new StringBuilder(lines * 32);
+        out.append("#include <stdio>;\n");
+        out.append("const int N = 10;\n");
+        switch (shape) {
+            case LONG_EXPRESSIONS:
+                out.append("var int x, y, z;\n");
+                out.append("newb\n");
+                for (int i = 0; i < lines; i++) {
+                    out.append("  x := (x + ").append(i).append(") * y - z * (N + x) div 3 + y mod 7 - (z - 1) * 2;\n");
+                }
+                out.append("endb\n");
+                break;
+            case DEEP_NESTING:
+                out.append("var int x;\n");
+                out.append("newb\n");
+                for (int i = 0; i < lines / 2; i++) {
+                    out.append("if (x < ").append(i).append(") newb\n");
+                }
+                out.append("x := 1;\n");
+                for (int i = 0; i < lines / 2; i++) {
+                    out.append("endb;\n");
+                }
+                out.append("endb\n");
+                break;
+            case MANY_FUNCTIONS:
+                out.append("var int x, y;\n");
+                for (int i = 0; i < lines / 8; i++) {
+                    out.append("function f").append(i).append(";\n");
+                    out.append("var int q;\n");
+                    out.append("newb\n");
+                    out.append("  q := (x + ").append(i).append(") * N;\n");
+                    out.append("  while (q > 0) newb q := q - 1; endb;\n");
+                    out.append("  repeat y := y + 2; until y => 10;\n");
+                    out.append("  cout << q;\n");
+                    out.append("endb;\n");
+                }
+                out.append("newb\n");
+                out.append("  call f0;\n");
+                out.append("endb\n");
+                break;
+            case HUGE_VAR_LISTS:
+                for (int i = 0; i < lines; i++) {
+                    out.append("var int a").append(i);
+                    for (int k = 1; k < 16; k++) {
+                        out.append(", a").append(i).append('_').append(k);
+                    }
+                    out.append(";\n");
+                }
+                out.append("newb\n");
+                out.append("  a0 := 1;\n");
+                out.append("endb\n");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown corpus " + shape);
+        }
+        out.append("exit\n");
+        return out.toString();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.comp439_mohammad;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Tokens and lines processed, reported by JMH as tokens/s and lines/s next to the
+ * per-operation score.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Counters {
+
+    public long tokens;
+    public long lines;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        tokens = 0;
+        lines = 0;
+    }
+}
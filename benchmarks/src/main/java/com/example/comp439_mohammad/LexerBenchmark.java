@@ -0,0 +1,86 @@
+package com.example.comp439_mohammad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--enable-preview")
+public class LexerBenchmark {
+
+    @Param({Corpus.LONG_EXPRESSIONS, Corpus.DEEP_NESTING, Corpus.MANY_FUNCTIONS, Corpus.HUGE_VAR_LISTS})
+    public String corpus;
+
+    @Param("20000")
+    public int lines;
+
+    private String source;
+    private int lineCount;
+
+    @Setup
+    public void setup() {
+        source = Corpus.generate(corpus, lines);
+        lineCount = source.split("\n").length;
+    }
+
+    /**
+     * Scanning line by line into a sink that only counts, as {@link LexingTokenStream} does.
+     */
+    @Benchmark
+    public void scanLines(Counters counters, Blackhole blackhole) throws ScannerLexer.SyntaxError {
+        TextLineReader reader = new TextLineReader(source);
+        long[] tokens = new long[1];
+        TokenSink sink = (src, kind, symbol, start, end, line, column) -> {
+            tokens[0]++;
+            blackhole.consume(kind);
+        };
+        while (reader.nextLine()) {
+            DfaScanner.scanLine(reader.text(), reader.lineStart(), reader.lineEnd(), reader.lineNumber(), sink);
+        }
+        counters.tokens += tokens[0];
+        counters.lines += reader.lineNumber();
+    }
+
+    /**
+     * Scanning into the struct-of-arrays {@link TokenBuffer}.
+     */
+    @Benchmark
+    public TokenBuffer tokenBuffer(Counters counters) throws ScannerLexer.SyntaxError {
+        TokenBuffer buffer = TokenBuffer.scan(source);
+        counters.tokens += buffer.size();
+        counters.lines += lineCount;
+        return buffer;
+    }
+
+    /**
+     * Scanning into {@link ScannerLexer.Token} objects, as {@code scanFile} hands them out.
+     */
+    @Benchmark
+    public void tokenObjects(Counters counters, Blackhole blackhole) throws ScannerLexer.SyntaxError {
+        TextLineReader reader = new TextLineReader(source);
+        long[] tokens = new long[1];
+        while (reader.nextLine()) {
+            DfaScanner.scanLine(reader.text(), reader.lineStart(), reader.lineEnd(), reader.lineNumber(), token -> {
+                tokens[0]++;
+                blackhole.consume(token);
+            });
+        }
+        counters.tokens += tokens[0];
+        counters.lines += reader.lineNumber();
+    }
+}
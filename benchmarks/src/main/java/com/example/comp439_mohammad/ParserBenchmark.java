@@ -0,0 +1,66 @@
+package com.example.comp439_mohammad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"--enable-preview", "-Xss8m"})
+public class ParserBenchmark {
+
+    @Param({Corpus.LONG_EXPRESSIONS, Corpus.DEEP_NESTING, Corpus.MANY_FUNCTIONS, Corpus.HUGE_VAR_LISTS})
+    public String corpus;
+
+    @Param("20000")
+    public int lines;
+
+    private String source;
+    private TokenBuffer buffer;
+    private int lineCount;
+
+    @Setup
+    public void setup() throws ScannerLexer.SyntaxError {
+        source = Corpus.generate(corpus, lines);
+        buffer = TokenBuffer.scan(source);
+        lineCount = source.split("\n").length;
+    }
+
+    /**
+     * Parsing alone, over tokens scanned once up front.
+     */
+    @Benchmark
+    public Ast parse(Counters counters) throws ScannerLexer.SyntaxError {
+        ScannerLexer.Parser parser = new ScannerLexer.Parser(buffer.stream(), TraceLevel.OFF, ParseListener.NONE);
+        Ast ast = parser.parse();
+        counters.tokens += buffer.size();
+        counters.lines += lineCount;
+        return ast;
+    }
+
+    /**
+     * Scanning and parsing together, pulling tokens a line at a time.
+     */
+    @Benchmark
+    public Ast scanAndParse(Counters counters) throws ScannerLexer.SyntaxError {
+        LexingTokenStream tokens = new LexingTokenStream(new TextLineReader(source));
+        ScannerLexer.Parser parser = new ScannerLexer.Parser(tokens, TraceLevel.OFF, ParseListener.NONE);
+        Ast ast = parser.parse();
+        counters.tokens += tokens.position();
+        counters.lines += lineCount;
+        return ast;
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.comp439_mohammad;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Syntax tree built by the {@link ScannerLexer.Parser}, stored as an arena: a node is
+ * an index into parallel int arrays, children are indices, and lists of siblings are
+ * chained through {@link #next(int)}. Names and literals are interned into a string
+ * table and referenced by id.
+ *
+ * <p>Layout of the three operand slots per node kind:
+ * <pre>
+ * PROGRAM        a: first declaration   b: first FUNCTION_DECL  c: main BLOCK
+ * LIBRARY        a: name
+ * CONST_DECL     a: name                b: type name            c: literal
+ * VAR_DECL       a: type name           b: first NAME
+ * FUNCTION_DECL  a: name                b: first declaration    c: BLOCK
+ * BLOCK          a: first statement
+ * IF             a: CONDITION           b: then statement       c: else statement or NIL
+ * WHILE          a: CONDITION           b: BLOCK
+ * REPEAT         a: first statement     b: CONDITION
+ * ASSIGN         a: target name         b: expression
+ * CALL, CIN      a: name
+ * COUT           a: NAME or NUMBER
+ * EXIT           -
+ * BINARY_OP      a: operator Symbol     b: left                 c: right
+ * CONDITION      a: operator Symbol     b: left                 c: right
+ * NAME           a: name
+ * NUMBER         a: literal
+ * </pre>
+ * "name" and "literal" slots hold string ids, see {@link #string(int)}.
+ */
+final class Ast {
+
+    static final int NIL = -1;
+
+    static final byte PROGRAM = 0;
+    static final byte LIBRARY = 1;
+    static final byte CONST_DECL = 2;
+    static final byte VAR_DECL = 3;
+    static final byte FUNCTION_DECL = 4;
+    static final byte BLOCK = 5;
+    static final byte IF = 6;
+    static final byte WHILE = 7;
+    static final byte REPEAT = 8;
+    static final byte ASSIGN = 9;
+    static final byte CALL = 10;
+    static final byte CIN = 11;
+    static final byte COUT = 12;
+    static final byte EXIT = 13;
+    static final byte BINARY_OP = 14;
+    static final byte CONDITION = 15;
+    static final byte NAME = 16;
+    static final byte NUMBER = 17;
+
+    static final int SLOT_A = 1;
+    static final int SLOT_B = 2;
+    static final int SLOT_C = 4;
+
+    private static final String[] KIND_NAMES = {
+            "Program", "Library", "ConstDecl", "VarDecl", "FunctionDecl", "Block", "If", "While",
+            "Repeat", "Assign", "Call", "Cin", "Cout", "Exit", "BinaryOp", "Condition", "Name", "Number"
+    };
+
+    private byte[] kinds;
+    private int[] as;
+    private int[] bs;
+    private int[] cs;
+    private int[] nexts;
+    private int[] lines;
+    private int size;
+
+    private String[] strings = new String[64];
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private int stringCount;
+
+    private int root = NIL;
+
+    Ast() {
+        this(256);
+    }
+
+    Ast(int capacity) {
+        kinds = new byte[capacity];
+        as = new int[capacity];
+        bs = new int[capacity];
+        cs = new int[capacity];
+        nexts = new int[capacity];
+        lines = new int[capacity];
+    }
+
+    int add(byte kind, int a, int b, int c, int line) {
+        if (size == kinds.length) {
+            grow();
+        }
+        kinds[size] = kind;
+        as[size] = a;
+        bs[size] = b;
+        cs[size] = c;
+        nexts[size] = NIL;
+        lines[size] = line;
+        return size++;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, size * 2);
+        kinds = Arrays.copyOf(kinds, capacity);
+        as = Arrays.copyOf(as, capacity);
+        bs = Arrays.copyOf(bs, capacity);
+        cs = Arrays.copyOf(cs, capacity);
+        nexts = Arrays.copyOf(nexts, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+    }
+
+    /**
+     * Links {@code node} after {@code last} (if there is one) and returns it as the new last element.
+     */
+    int append(int last, int node) {
+        if (last != NIL) {
+            nexts[last] = node;
+        }
+        return node;
+    }
+
+    int intern(String text) {
+        Integer id = stringIds.get(text);
+        if (id != null) {
+            return id;
+        }
+        if (stringCount == strings.length) {
+            strings = Arrays.copyOf(strings, stringCount * 2);
+        }
+        strings[stringCount] = text;
+        stringIds.put(text, stringCount);
+        return stringCount++;
+    }
+
+    String string(int id) {
+        return strings[id];
+    }
+
+    int stringCount() {
+        return stringCount;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int root() {
+        return root;
+    }
+
+    void setRoot(int node) {
+        root = node;
+    }
+
+    byte kind(int node) {
+        return kinds[node];
+    }
+
+    int a(int node) {
+        return as[node];
+    }
+
+    int b(int node) {
+        return bs[node];
+    }
+
+    int c(int node) {
+        return cs[node];
+    }
+
+    int next(int node) {
+        return nexts[node];
+    }
+
+    int line(int node) {
+        return lines[node];
+    }
+
+    /**
+     * Changes what a node is in place, keeping its position in its list and its line.
+     */
+    void set(int node, byte kind, int a, int b, int c) {
+        kinds[node] = kind;
+        as[node] = a;
+        bs[node] = b;
+        cs[node] = c;
+    }
+
+    void setLine(int node, int line) {
+        lines[node] = line;
+    }
+
+    void setA(int node, int value) {
+        as[node] = value;
+    }
+
+    void setB(int node, int value) {
+        bs[node] = value;
+    }
+
+    void setC(int node, int value) {
+        cs[node] = value;
+    }
+
+    void setNext(int node, int value) {
+        nexts[node] = value;
+    }
+
+    /**
+     * Name or literal of a node whose {@code a} slot holds a string id.
+     */
+    String name(int node) {
+        return strings[as[node]];
+    }
+
+    static String kindName(byte kind) {
+        return KIND_NAMES[kind];
+    }
+
+    /**
+     * Number of node kinds; kinds run from 0 to one less.
+     */
+    static int kindCount() {
+        return KIND_NAMES.length;
+    }
+
+    /**
+     * Which of the slots a ({@link #SLOT_A}), b ({@link #SLOT_B}) and c ({@link #SLOT_C})
+     * hold nodes for this kind, as in the layout above. The other slots hold string ids,
+     * symbols or nothing.
+     */
+    static int nodeSlots(byte kind) {
+        switch (kind) {
+            case PROGRAM:
+            case IF:
+                return SLOT_A | SLOT_B | SLOT_C;
+            case FUNCTION_DECL:
+            case BINARY_OP:
+            case CONDITION:
+                return SLOT_B | SLOT_C;
+            case WHILE:
+            case REPEAT:
+                return SLOT_A | SLOT_B;
+            case BLOCK:
+            case COUT:
+                return SLOT_A;
+            case VAR_DECL:
+            case ASSIGN:
+                return SLOT_B;
+            case LIBRARY:
+            case CONST_DECL:
+            case CALL:
+            case CIN:
+            case EXIT:
+            case NAME:
+            case NUMBER:
+                return 0;
+            default:
+                throw new IllegalArgumentException("No slot layout for node kind " + kind);
+        }
+    }
+
+    /**
+     * Source-like rendering of an expression, fully parenthesised.
+     */
+    String render(int node) {
+        StringBuilder out = new StringBuilder();
+        render(node, out);
+        return out.toString();
+    }
+
+    private void render(int node, StringBuilder out) {
+        // Explicit stack so arbitrarily deep expressions render without recursion.
+        // Entries >= 0 are nodes, -1 emits ')', anything lower emits an operator.
+        final int close = -1;
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int entry = stack[--top];
+            if (entry == close) {
+                out.append(')');
+                continue;
+            }
+            if (entry < close) {
+                out.append(' ').append(Symbol.text(-entry - 2)).append(' ');
+                continue;
+            }
+            switch (kinds[entry]) {
+                case NAME:
+                case NUMBER:
+                    out.append(strings[as[entry]]);
+                    break;
+                case BINARY_OP:
+                case CONDITION:
+                    if (top + 4 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2 + 4);
+                    }
+                    out.append('(');
+                    stack[top++] = close;
+                    stack[top++] = cs[entry];
+                    stack[top++] = -as[entry] - 2;
+                    stack[top++] = bs[entry];
+                    break;
+                default:
+                    out.append(KIND_NAMES[kinds[entry]]);
+            }
+        }
+    }
+}
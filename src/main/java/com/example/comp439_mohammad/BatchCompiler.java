@@ -0,0 +1,353 @@
+package com.example.comp439_mohammad;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Headless driver that scans, parses and checks many files at once on a work-stealing pool.
+ * Every file gets its own reader, token stream and parser, with tracing off and error
+ * recovery on, so workers share nothing and each file reports all of its diagnostics.
+ * With a {@link ParseCache}, files whose content was checked before are not parsed again.
+ * {@code -metrics file} writes the {@link CompilerMetrics} of every file parsed as JSON.
+ *
+ * <pre>
+ * java com.example.comp439_mohammad.BatchCompiler [-j threads] [-q] [-cache dir] [-cache-size MB] [-metrics file] path|dir|glob...
+ * </pre>
+ */
+final class BatchCompiler {
+
+    static final class Result {
+        final Path file;
+        final long bytes;
+        final int lines;
+        final int tokens;
+        final long nanos;
+        final List<Diagnostic> diagnostics;
+        /** I/O or nesting failure that stopped the file from being parsed at all, or null. */
+        final String failure;
+        /** Whether this came from the {@link ParseCache} rather than a parse. */
+        final boolean cached;
+
+        Result(Path file, long bytes, int lines, int tokens, long nanos, List<Diagnostic> diagnostics, String failure) {
+            this(file, bytes, lines, tokens, nanos, diagnostics, failure, false);
+        }
+
+        Result(Path file, long bytes, int lines, int tokens, long nanos, List<Diagnostic> diagnostics, String failure,
+               boolean cached) {
+            this.file = file;
+            this.bytes = bytes;
+            this.lines = lines;
+            this.tokens = tokens;
+            this.nanos = nanos;
+            this.diagnostics = diagnostics;
+            this.failure = failure;
+            this.cached = cached;
+        }
+
+        boolean ok() {
+            return failure == null && diagnostics.isEmpty();
+        }
+    }
+
+    private final int parallelism;
+    private ParseCache cache;
+    private CompilerMetrics metrics;
+
+    BatchCompiler(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    void setCache(ParseCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Adds the metrics of every file parsed to {@code metrics}; cache hits are not parsed.
+     */
+    void setMetrics(CompilerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Compiles every file and returns the results in input order. {@code onResult} is
+     * called from the worker threads as soon as each file is done.
+     */
+    List<Result> compile(List<Path> files, Consumer<? super Result> onResult) {
+        if (parallelism <= 1 || files.size() <= 1) {
+            // Not worth starting a pool; keeps a single-file check cheap.
+            List<Result> results = new ArrayList<>(files.size());
+            for (Path file : files) {
+                Result result = check(file);
+                onResult.accept(result);
+                results.add(result);
+            }
+            return results;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<Result>> tasks = new ArrayList<>(files.size());
+            for (Path file : files) {
+                tasks.add(pool.submit(() -> {
+                    Result result = check(file);
+                    onResult.accept(result);
+                    return result;
+                }));
+            }
+            List<Result> results = new ArrayList<>(files.size());
+            for (ForkJoinTask<Result> task : tasks) {
+                results.add(task.join());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * {@link #compile(Path)} through the cache, if there is one.
+     */
+    Result check(Path file) {
+        if (cache == null) {
+            return measured(file);
+        }
+        long start = System.nanoTime();
+        byte[] key;
+        try {
+            key = ParseCache.key(file);
+        } catch (IOException | UncheckedIOException e) {
+            // Let compile report it.
+            return measured(file);
+        }
+        Result result = cache.load(file, key, start);
+        if (result != null) {
+            return result;
+        }
+        result = measured(file);
+        try {
+            // A file that changed while it was parsed has a result for some other content.
+            if (Arrays.equals(key, ParseCache.key(file))) {
+                cache.store(key, result);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // A cache that cannot be written only costs time.
+        }
+        return result;
+    }
+
+    private Result measured(Path file) {
+        if (metrics == null) {
+            return compile(file);
+        }
+        CompilerMetrics own = new CompilerMetrics(file.toString());
+        Result result = compile(file, own);
+        metrics.add(own);
+        return result;
+    }
+
+    static Result compile(Path file) {
+        return compile(file, null);
+    }
+
+    /**
+     * Compiles one file, recording its phases in {@code metrics} unless it is null.
+     */
+    static Result compile(Path file, CompilerMetrics metrics) {
+        long start = System.nanoTime();
+        List<Diagnostic> diagnostics = List.of();
+        long bytes = 0;
+        int lines = 0;
+        int tokens = 0;
+        String failure = null;
+        try (MappedLineReader reader = new MappedLineReader(file);
+             LexingTokenStream stream = new LexingTokenStream(reader)) {
+            bytes = reader.size();
+            ScannerLexer.Parser parser = new ScannerLexer.Parser(stream, TraceLevel.OFF, ParseListener.NONE);
+            parser.setRecovery(true);
+            if (metrics != null) {
+                stream.setMetrics(metrics);
+                parser.setMetrics(metrics);
+                metrics.file();
+            }
+            diagnostics = parser.diagnostics();
+            try {
+                Ast ast = parser.parse();
+                if (diagnostics.isEmpty()) {
+                    if (metrics != null) metrics.begin(CompilerMetrics.SEMANTIC, 0, 0);
+                    diagnostics.addAll(SemanticAnalyzer.analyze(ast));
+                    if (metrics != null) metrics.end(CompilerMetrics.SEMANTIC, 0, 0);
+                }
+            } catch (ScannerLexer.SyntaxError e) {
+                diagnostics.add(Diagnostic.of(e));
+            }
+            lines = reader.lineNumber();
+            tokens = stream.position();
+        } catch (IOException | UncheckedIOException | ScannerLexer.Parser.MaxDepthExceededException e) {
+            failure = e.getMessage();
+        }
+        return new Result(file, bytes, lines, tokens, System.nanoTime() - start, diagnostics, failure);
+    }
+
+    /**
+     * Turns command line arguments into files: a directory contributes every regular
+     * file below it, a glob such as {@code samples/**.txt} is matched below its longest
+     * literal prefix, and anything else is taken as a file name.
+     */
+    static List<Path> expand(List<String> patterns) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String pattern : patterns) {
+            Path path = isGlob(pattern) ? null : Path.of(pattern);
+            if (path != null && Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile).sorted().forEach(files::add);
+                }
+            } else if (path != null) {
+                files.add(path);
+            } else {
+                Path base = globBase(pattern);
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+                try (Stream<Path> walk = Files.walk(base)) {
+                    walk.filter(p -> Files.isRegularFile(p) && matcher.matches(p)).sorted().forEach(files::add);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static boolean isGlob(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            switch (pattern.charAt(i)) {
+                case '*':
+                case '?':
+                case '[':
+                case '{':
+                    return true;
+                default:
+                    break;
+            }
+        }
+        return false;
+    }
+
+    private static Path globBase(String pattern) {
+        int slash = -1;
+        for (int i = 0; i < pattern.length() && !isGlob(pattern.substring(i, i + 1)); i++) {
+            if (pattern.charAt(i) == '/') slash = i;
+        }
+        if (slash < 0) return Path.of("");
+        return Path.of(slash == 0 ? "/" : pattern.substring(0, slash));
+    }
+
+    static void report(Result result, PrintStream out) {
+        if (result.failure != null) {
+            out.println(result.file + ": error: " + result.failure);
+        }
+        report(result.file, result.diagnostics, out);
+    }
+
+    /**
+     * Prints each diagnostic with an excerpt of the line it is on. The file is only
+     * mapped again when there is something to show, and without excerpts if it cannot be.
+     */
+    static void report(Path file, List<Diagnostic> diagnostics, PrintStream out) {
+        if (diagnostics.isEmpty()) return;
+        SourceMap map;
+        try {
+            map = SourceMap.of(file);
+        } catch (IOException | UncheckedIOException e) {
+            map = new SourceMap("");
+        }
+        for (Diagnostic diagnostic : diagnostics) {
+            out.println(file + ":" + diagnostic);
+            out.print(diagnostic.excerpt(map));
+        }
+    }
+
+    /**
+     * Prints the aggregate line and returns how many files failed.
+     */
+    static int summarize(List<Result> results, long nanos, PrintStream out) {
+        long bytes = 0;
+        long lines = 0;
+        long tokens = 0;
+        int failed = 0;
+        int diagnostics = 0;
+        int cached = 0;
+        for (Result result : results) {
+            if (result.cached) cached++;
+            bytes += result.bytes;
+            lines += result.lines;
+            tokens += result.tokens;
+            diagnostics += result.diagnostics.size();
+            if (!result.ok()) failed++;
+        }
+        double seconds = Math.max(nanos, 1) / 1e9;
+        out.printf("%d files (%d cached), %d failed, %d diagnostics; %d lines, %d tokens, %d bytes in %.1f ms"
+                        + " (%.0f lines/s, %.0f tokens/s, %.1f MB/s)%n",
+                results.size(), cached, failed, diagnostics, lines, tokens, bytes, nanos / 1e6,
+                lines / seconds, tokens / seconds, bytes / seconds / (1 << 20));
+        return failed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean quiet = false;
+        Path cacheDirectory = null;
+        long cacheMegabytes = 256;
+        Path metricsFile = null;
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-j") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-q")) {
+                quiet = true;
+            } else if (args[i].equals("-cache") && i + 1 < args.length) {
+                cacheDirectory = Path.of(args[++i]);
+            } else if (args[i].equals("-cache-size") && i + 1 < args.length) {
+                cacheMegabytes = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-metrics") && i + 1 < args.length) {
+                metricsFile = Path.of(args[++i]);
+            } else {
+                patterns.add(args[i]);
+            }
+        }
+        if (patterns.isEmpty()) {
+            System.err.println("usage: BatchCompiler [-j threads] [-q] [-cache dir] [-cache-size MB] [-metrics file] path|dir|glob...");
+            System.exit(2);
+        }
+
+        List<Path> files = expand(patterns);
+        PrintStream out = System.out;
+        boolean verbose = !quiet;
+        long start = System.nanoTime();
+        BatchCompiler compiler = new BatchCompiler(threads);
+        if (cacheDirectory != null) {
+            compiler.setCache(new ParseCache(cacheDirectory, cacheMegabytes << 20));
+        }
+        CompilerMetrics metrics = metricsFile != null ? new CompilerMetrics(String.join(" ", patterns)) : null;
+        compiler.setMetrics(metrics);
+        List<Result> results = compiler.compile(files, result -> {
+            if (verbose) {
+                synchronized (out) {
+                    report(result, out);
+                }
+            }
+        });
+        int failed = summarize(results, System.nanoTime() - start, out);
+        if (metrics != null) {
+            Files.writeString(metricsFile, metrics.toJson());
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.comp439_mohammad;
+
+import java.util.Arrays;
+
+/**
+ * A compiled program: one int array of {@link Opcode} instructions and their operands,
+ * a pool of numeric constants, and a table of functions. Global variables are numbered
+ * slots; each function numbers its own locals from 0 within its frame. Built by
+ * {@link BytecodeCompiler}, run by {@link VirtualMachine}.
+ */
+final class Bytecode {
+
+    private final int[] code;
+    private final double[] constants;
+    private final int[] functionEntries;
+    private final int[] functionLocals;
+    private final String[] functionNames;
+    private final String[] globalNames;
+    private final int mainEntry;
+    private final int maxStack;
+    // Source line of the instructions from linePcs[i] up to linePcs[i + 1].
+    private final int[] linePcs;
+    private final int[] lineNumbers;
+
+    Bytecode(int[] code, double[] constants, int[] functionEntries, int[] functionLocals, String[] functionNames,
+             String[] globalNames, int mainEntry, int maxStack, int[] linePcs, int[] lineNumbers) {
+        this.code = code;
+        this.constants = constants;
+        this.functionEntries = functionEntries;
+        this.functionLocals = functionLocals;
+        this.functionNames = functionNames;
+        this.globalNames = globalNames;
+        this.mainEntry = mainEntry;
+        this.maxStack = maxStack;
+        this.linePcs = linePcs;
+        this.lineNumbers = lineNumbers;
+    }
+
+    int[] code() {
+        return code;
+    }
+
+    double[] constants() {
+        return constants;
+    }
+
+    int[] functionEntries() {
+        return functionEntries;
+    }
+
+    int[] functionLocals() {
+        return functionLocals;
+    }
+
+    int functionCount() {
+        return functionEntries.length;
+    }
+
+    String functionName(int function) {
+        return functionNames[function];
+    }
+
+    int globals() {
+        return globalNames.length;
+    }
+
+    String globalName(int slot) {
+        return globalNames[slot];
+    }
+
+    int mainEntry() {
+        return mainEntry;
+    }
+
+    /**
+     * Deepest the operand stack gets. Statements leave it empty, so this holds across calls.
+     */
+    int maxStack() {
+        return maxStack;
+    }
+
+    /**
+     * Source line of the instruction at {@code pc}, or 0 if unknown.
+     */
+    int line(int pc) {
+        int i = Arrays.binarySearch(linePcs, pc);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        return i < 0 ? 0 : lineNumbers[i];
+    }
+
+    /**
+     * Number of instructions, not counting operands.
+     */
+    int instructionCount() {
+        int count = 0;
+        for (int pc = 0; pc < code.length; pc += 1 + Opcode.operands(code[pc])) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * One instruction per line, with function headers, source lines and what operands refer to.
+     */
+    String disassemble() {
+        StringBuilder out = new StringBuilder();
+        int line = 0;
+        for (int pc = 0; pc < code.length; pc += 1 + Opcode.operands(code[pc])) {
+            for (int f = 0; f < functionEntries.length; f++) {
+                if (functionEntries[f] == pc) {
+                    out.append("function ").append(functionNames[f])
+                            .append(" (").append(functionLocals[f]).append(" locals)\n");
+                }
+            }
+            if (pc == mainEntry) {
+                out.append("main\n");
+            }
+            int opcode = code[pc];
+            String position = String.format("%6d", pc);
+            if (line(pc) != line) {
+                line = line(pc);
+                position = position + String.format("%6d", line);
+            } else {
+                position = position + "      ";
+            }
+            out.append(position).append("  ").append(Opcode.name(opcode));
+            if (Opcode.operands(opcode) > 0) {
+                int operand = code[pc + 1];
+                out.append(' ').append(operand);
+                switch (opcode) {
+                    case Opcode.PUSH:
+                        out.append("  ; ").append(constants[operand]);
+                        break;
+                    case Opcode.LOAD_GLOBAL:
+                    case Opcode.STORE_GLOBAL:
+                    case Opcode.READ_GLOBAL:
+                        out.append("  ; ").append(globalNames[operand]);
+                        break;
+                    case Opcode.CALL:
+                        out.append("  ; ").append(functionNames[operand]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+}
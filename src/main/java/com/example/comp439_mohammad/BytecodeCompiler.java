@@ -0,0 +1,389 @@
+package com.example.comp439_mohammad;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiles a checked {@link Ast} into {@link Bytecode}. Names are resolved once, here,
+ * into global slots, frame-local slots, function numbers or (for constants) their value,
+ * so the {@link VirtualMachine} never looks anything up by name. Statements and
+ * expressions are walked with explicit stacks, so nesting depth is not limited by the
+ * Java stack. Jumps to code not yet emitted are patched once it is.
+ *
+ * <p>Run {@link SemanticAnalyzer} first; names it would reject make this throw
+ * {@link IllegalArgumentException}.
+ */
+final class BytecodeCompiler {
+
+    // Statement work items.
+    private static final byte STATEMENT = 0;   // a: statement node
+    private static final byte PATCH = 1;       // a: operand to point at the current pc
+    private static final byte ELSE = 2;        // a: operand of the jump over the then branch, b: else statement
+    private static final byte LOOP = 3;        // a: loop start, b: operand of the jump out of the loop
+    private static final byte UNTIL = 4;       // a: loop start, b: CONDITION
+
+    private final Ast ast;
+    private final SymbolTable symbols;
+    // Slot, function number or constant pool index of each live binding.
+    private int[] slots = new int[64];
+
+    private int[] code = new int[256];
+    private int pc;
+    private double[] constants = new double[16];
+    private int constantCount;
+    private final Map<Long, Integer> constantIndex = new HashMap<>();
+
+    private String[] globalNames = new String[16];
+    private int globals;
+    private int[] functionEntries = new int[16];
+    private int[] functionLocals = new int[16];
+    private String[] functionNames = new String[16];
+    private int functions;
+    private boolean inFunction;
+    private int locals;
+
+    private int[] linePcs = new int[64];
+    private int[] lineNumbers = new int[64];
+    private int lineCount;
+
+    private int depth;
+    private int maxStack;
+
+    private byte[] taskKinds = new byte[64];
+    private int[] taskAs = new int[64];
+    private int[] taskBs = new int[64];
+    private int tasks;
+
+    private int[] expressionStack = new int[64];
+
+    BytecodeCompiler(Ast ast) {
+        this.ast = ast;
+        this.symbols = new SymbolTable(ast.stringCount());
+    }
+
+    static Bytecode compile(Ast ast) {
+        return new BytecodeCompiler(ast).run();
+    }
+
+    Bytecode run() {
+        int program = ast.root();
+        if (program == Ast.NIL) {
+            throw new IllegalArgumentException("Empty syntax tree");
+        }
+        symbols.enterScope();
+        declarations(ast.a(program));
+        for (int function = ast.b(program); function != Ast.NIL; function = ast.next(function)) {
+            function(function);
+        }
+        int mainEntry = pc;
+        block(ast.c(program));
+        line(ast.c(program));
+        emit(Opcode.HALT);
+        symbols.exitScope();
+        return new Bytecode(Arrays.copyOf(code, pc), Arrays.copyOf(constants, constantCount),
+                Arrays.copyOf(functionEntries, functions), Arrays.copyOf(functionLocals, functions),
+                Arrays.copyOf(functionNames, functions), Arrays.copyOf(globalNames, globals),
+                mainEntry, maxStack, Arrays.copyOf(linePcs, lineCount), Arrays.copyOf(lineNumbers, lineCount));
+    }
+
+    private void declarations(int first) {
+        for (int node = first; node != Ast.NIL; node = ast.next(node)) {
+            switch (ast.kind(node)) {
+                case Ast.CONST_DECL:
+                    bind(ast.a(node), SymbolTable.CONSTANT, node, constant(number(ast.c(node))));
+                    break;
+                case Ast.VAR_DECL:
+                    for (int name = ast.b(node); name != Ast.NIL; name = ast.next(name)) {
+                        bind(ast.a(name), SymbolTable.VARIABLE, name, inFunction ? locals++ : global(ast.name(name)));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private int global(String name) {
+        if (globals == globalNames.length) {
+            globalNames = Arrays.copyOf(globalNames, globals * 2);
+        }
+        globalNames[globals] = name;
+        return globals++;
+    }
+
+    private void function(int node) {
+        if (functions == functionEntries.length) {
+            functionEntries = Arrays.copyOf(functionEntries, functions * 2);
+            functionLocals = Arrays.copyOf(functionLocals, functions * 2);
+            functionNames = Arrays.copyOf(functionNames, functions * 2);
+        }
+        int index = functions++;
+        // Declared before its body, so it can call itself.
+        bind(ast.a(node), SymbolTable.FUNCTION, node, index);
+        functionNames[index] = ast.name(node);
+        functionEntries[index] = pc;
+
+        symbols.enterScope();
+        inFunction = true;
+        locals = 0;
+        declarations(ast.b(node));
+        block(ast.c(node));
+        line(ast.c(node));
+        emit(Opcode.RETURN);
+        functionLocals[index] = locals;
+        inFunction = false;
+        symbols.exitScope();
+    }
+
+    private void bind(int name, byte kind, int node, int slot) {
+        if (symbols.declare(name, kind, node) != SymbolTable.NOT_FOUND) {
+            throw new IllegalArgumentException("Duplicate declaration of '" + ast.string(name)
+                    + "' at line " + ast.line(node));
+        }
+        int binding = symbols.lookup(name);
+        if (binding >= slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(binding + 1, slots.length * 2));
+        }
+        slots[binding] = slot;
+    }
+
+    private void block(int block) {
+        if (ast.a(block) == Ast.NIL) return;
+        push(STATEMENT, ast.a(block), 0);
+        while (tasks > 0) {
+            tasks--;
+            int a = taskAs[tasks];
+            int b = taskBs[tasks];
+            switch (taskKinds[tasks]) {
+                case STATEMENT:
+                    if (ast.next(a) != Ast.NIL) {
+                        push(STATEMENT, ast.next(a), 0);
+                    }
+                    statement(a);
+                    break;
+                case PATCH:
+                    code[a] = pc;
+                    break;
+                case ELSE: {
+                    int skipElse = jump(Opcode.JUMP);
+                    code[a] = pc;
+                    push(PATCH, skipElse, 0);
+                    push(STATEMENT, b, 0);
+                    break;
+                }
+                case LOOP:
+                    emit(Opcode.JUMP);
+                    emit(a);
+                    code[b] = pc;
+                    break;
+                default:
+                    // repeat ... until c: go back while c does not hold.
+                    line(b);
+                    condition(b, true, a);
+                    break;
+            }
+        }
+    }
+
+    private void statement(int node) {
+        line(node);
+        switch (ast.kind(node)) {
+            case Ast.BLOCK:
+                if (ast.a(node) != Ast.NIL) {
+                    push(STATEMENT, ast.a(node), 0);
+                }
+                break;
+            case Ast.IF: {
+                int skipThen = condition(ast.a(node), true, 0);
+                if (ast.c(node) == Ast.NIL) {
+                    push(PATCH, skipThen, 0);
+                } else {
+                    push(ELSE, skipThen, ast.c(node));
+                }
+                push(STATEMENT, ast.b(node), 0);
+                break;
+            }
+            case Ast.WHILE: {
+                int start = pc;
+                int exit = condition(ast.a(node), true, 0);
+                push(LOOP, start, exit);
+                push(STATEMENT, ast.b(node), 0);
+                break;
+            }
+            case Ast.REPEAT:
+                push(UNTIL, pc, ast.b(node));
+                push(STATEMENT, ast.a(node), 0);
+                break;
+            case Ast.ASSIGN:
+                expression(ast.b(node));
+                store(node, Opcode.STORE_GLOBAL, Opcode.STORE_LOCAL);
+                depth--;
+                break;
+            case Ast.CIN:
+                store(node, Opcode.READ_GLOBAL, Opcode.READ_LOCAL);
+                break;
+            case Ast.COUT:
+                expression(ast.a(node));
+                emit(Opcode.WRITE);
+                depth--;
+                break;
+            case Ast.CALL:
+                emit(Opcode.CALL);
+                emit(slots[resolve(node, SymbolTable.FUNCTION)]);
+                break;
+            case Ast.EXIT:
+                emit(Opcode.HALT);
+                break;
+            default:
+                throw new IllegalArgumentException("Not a statement: " + Ast.kindName(ast.kind(node)));
+        }
+    }
+
+    private void store(int node, int global, int local) {
+        int binding = resolve(node, SymbolTable.VARIABLE);
+        emit(symbols.scope(binding) == 1 ? global : local);
+        emit(slots[binding]);
+    }
+
+    /**
+     * Emits a CONDITION as a compare-and-jump to {@code target}, taken when the condition
+     * holds, or when it does not if {@code negate}. Returns the position of the jump operand.
+     */
+    private int condition(int node, boolean negate, int target) {
+        expression(ast.b(node));
+        expression(ast.c(node));
+        int jump = Opcode.jumpIf(ast.a(node));
+        emit(negate ? Opcode.negate(jump) : jump);
+        emit(target);
+        depth -= 2;
+        return pc - 1;
+    }
+
+    private int jump(int opcode) {
+        emit(opcode);
+        emit(0);
+        return pc - 1;
+    }
+
+    /**
+     * Emits code leaving the value of an expression on the operand stack.
+     */
+    private void expression(int root) {
+        // Entries >= 0 are nodes still to visit; -1 - op emits an arithmetic op once both operands are on the stack.
+        int[] stack = expressionStack;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int entry = stack[--top];
+            if (entry < 0) {
+                emit(-1 - entry);
+                depth--;
+                continue;
+            }
+            switch (ast.kind(entry)) {
+                case Ast.NUMBER:
+                    emit(Opcode.PUSH);
+                    emit(constant(number(ast.a(entry))));
+                    grow();
+                    break;
+                case Ast.NAME: {
+                    int binding = resolve(entry, SymbolTable.VARIABLE);
+                    if (symbols.kind(binding) == SymbolTable.CONSTANT) {
+                        emit(Opcode.PUSH);
+                    } else {
+                        emit(symbols.scope(binding) == 1 ? Opcode.LOAD_GLOBAL : Opcode.LOAD_LOCAL);
+                    }
+                    emit(slots[binding]);
+                    grow();
+                    break;
+                }
+                case Ast.BINARY_OP:
+                    if (top + 3 > stack.length) {
+                        stack = expressionStack = Arrays.copyOf(stack, stack.length * 2 + 3);
+                    }
+                    stack[top++] = -1 - Opcode.arithmetic(ast.a(entry));
+                    stack[top++] = ast.c(entry);
+                    stack[top++] = ast.b(entry);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not an expression: " + Ast.kindName(ast.kind(entry)));
+            }
+        }
+    }
+
+    private void grow() {
+        if (++depth > maxStack) {
+            maxStack = depth;
+        }
+    }
+
+    /**
+     * Binding of the name in {@code node}; constants are accepted where variables are read.
+     */
+    private int resolve(int node, byte kind) {
+        int binding = symbols.lookup(ast.a(node));
+        if (binding == SymbolTable.NOT_FOUND) {
+            throw new IllegalArgumentException("Undeclared name '" + ast.name(node) + "' at line " + ast.line(node));
+        }
+        byte actual = symbols.kind(binding);
+        boolean readable = kind == SymbolTable.VARIABLE && actual == SymbolTable.CONSTANT
+                && ast.kind(node) == Ast.NAME;
+        if (actual != kind && !readable) {
+            throw new IllegalArgumentException("'" + ast.name(node) + "' cannot be used here, at line " + ast.line(node));
+        }
+        return binding;
+    }
+
+    private double number(int literal) {
+        return Double.parseDouble(ast.string(literal));
+    }
+
+    private int constant(double value) {
+        Integer index = constantIndex.get(Double.doubleToLongBits(value));
+        if (index != null) {
+            return index;
+        }
+        if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        }
+        constants[constantCount] = value;
+        constantIndex.put(Double.doubleToLongBits(value), constantCount);
+        return constantCount++;
+    }
+
+    private void line(int node) {
+        int line = ast.line(node);
+        if (lineCount > 0 && lineNumbers[lineCount - 1] == line) return;
+        if (lineCount > 0 && linePcs[lineCount - 1] == pc) {
+            // Nothing emitted for the previous line.
+            lineNumbers[lineCount - 1] = line;
+            return;
+        }
+        if (lineCount == linePcs.length) {
+            linePcs = Arrays.copyOf(linePcs, lineCount * 2);
+            lineNumbers = Arrays.copyOf(lineNumbers, lineCount * 2);
+        }
+        linePcs[lineCount] = pc;
+        lineNumbers[lineCount++] = line;
+    }
+
+    private void emit(int word) {
+        if (pc == code.length) {
+            code = Arrays.copyOf(code, pc * 2);
+        }
+        code[pc++] = word;
+    }
+
+    private void push(byte kind, int a, int b) {
+        if (tasks == taskKinds.length) {
+            taskKinds = Arrays.copyOf(taskKinds, tasks * 2);
+            taskAs = Arrays.copyOf(taskAs, tasks * 2);
+            taskBs = Arrays.copyOf(taskBs, tasks * 2);
+        }
+        taskKinds[tasks] = kind;
+        taskAs[tasks] = a;
+        taskBs[tasks] = b;
+        tasks++;
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.comp439_mohammad;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Command line entry point that never touches JavaFX. Launch it from the class path
+ * (the module descriptor's JavaFX requirements only apply on the module path):
+ *
+ * <pre>
+ * java -cp Comp439_Mohammad.jar com.example.comp439_mohammad.Cli check [-j threads] [-q] [-cache dir] [-cache-size MB] [-metrics file] path|dir|glob...
+ * java -cp Comp439_Mohammad.jar com.example.comp439_mohammad.Cli tokens [-metrics file] file
+ * java -cp Comp439_Mohammad.jar com.example.comp439_mohammad.Cli compile [-v] [-metrics file] file
+ * java -cp Comp439_Mohammad.jar com.example.comp439_mohammad.Cli run [-O0] [-S] [-jit] [-stats] file
+ * java -cp Comp439_Mohammad.jar com.example.comp439_mohammad.Cli save file output
+ * java -cp Comp439_Mohammad.jar com.example.comp439_mohammad.Cli lsp [-debounce ms]
+ * java -cp Comp439_Mohammad.jar com.example.comp439_mohammad.Cli generate [-seed n] [-lines n] ... [-o file]
+ * </pre>
+ *
+ * {@code -metrics file} writes {@link CompilerMetrics} for the scanner and parser phases as
+ * JSON; they are committed as JFR events too when a recording is running.
+ *
+ * The jar's manifest names this class, so {@code java -jar} works too. Building with
+ * {@code mvn -Pcds package} also writes {@code target/cli.jsa}; pass it with
+ * {@code -XX:SharedArchiveFile=target/cli.jsa} for a fast cold start.
+ */
+public final class Cli {
+
+    private Cli() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            usage();
+        }
+        List<String> rest = Arrays.asList(args).subList(1, args.length);
+        switch (args[0]) {
+            case "check":
+                BatchCompiler.main(rest.toArray(new String[0]));
+                break;
+            case "tokens":
+                System.exit(tokens(rest));
+                break;
+            case "compile":
+                System.exit(compile(rest));
+                break;
+            case "run":
+                System.exit(run(rest));
+                break;
+            case "save":
+                System.exit(save(rest));
+                break;
+            case "lsp":
+                System.exit(lsp(rest));
+                break;
+            case "generate":
+                ProgramGenerator.main(rest.toArray(new String[0]));
+                break;
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: Cli check [-j threads] [-q] [-cache dir] [-cache-size MB] [-metrics file] path|dir|glob...");
+        System.err.println("       Cli tokens [-metrics file] file");
+        System.err.println("       Cli compile [-v] [-metrics file] file");
+        System.err.println("       Cli run [-O0] [-S] [-jit] [-stats] file");
+        System.err.println("       Cli save file output");
+        System.err.println("       Cli lsp [-debounce ms]");
+        System.err.println("       Cli generate [-seed n] [-lines n] [-depth n] [-functions n] [-errors rate] [-o file]");
+        System.exit(2);
+    }
+
+    /**
+     * Prints the tokens of a source file, or of a file written by {@code save}.
+     */
+    private static int tokens(List<String> args) throws IOException {
+        Path metricsFile = null;
+        if (args.size() == 3 && args.get(0).equals("-metrics")) {
+            metricsFile = Path.of(args.get(1));
+            args = args.subList(2, 3);
+        }
+        if (args.size() != 1) usage();
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+        if (ParsedFile.isParsedFile(Path.of(args.get(0)))) {
+            ParsedFile.Tokens tokens = ParsedFile.open(Path.of(args.get(0))).tokens();
+            while (tokens.next()) {
+                out.println(tokens.line() + ":" + tokens.column() + "\t" + TokenKind.name(tokens.kind()) + "\t" + tokens.text());
+            }
+            out.flush();
+            return 0;
+        }
+        CompilerMetrics metrics = metricsFile != null ? new CompilerMetrics(args.get(0)) : null;
+        try {
+            ScannerLexer.scanFile(args.get(0), token ->
+                    out.println(token.line + ":" + token.column + "\t" + token.type + "\t" + token.value), metrics);
+            if (metrics != null) {
+                metrics.file();
+                Files.writeString(metricsFile, metrics.toJson());
+            }
+            return 0;
+        } catch (ScannerLexer.SyntaxError e) {
+            out.flush();
+            System.err.println(args.get(0) + ":" + Diagnostic.of(e));
+            return 1;
+        } finally {
+            out.flush();
+        }
+    }
+
+    private static int compile(List<String> args) throws IOException {
+        boolean verbose = false;
+        Path metricsFile = null;
+        int i = 0;
+        for (; i < args.size() && args.get(i).startsWith("-"); i++) {
+            switch (args.get(i)) {
+                case "-v": verbose = true; break;
+                case "-metrics":
+                    if (++i == args.size()) usage();
+                    metricsFile = Path.of(args.get(i));
+                    break;
+                default: usage();
+            }
+        }
+        if (i != args.size() - 1) usage();
+        String file = args.get(i);
+        CompilerMetrics metrics = metricsFile != null ? new CompilerMetrics(file) : null;
+
+        if (!verbose) {
+            BatchCompiler.Result result = BatchCompiler.compile(Path.of(file), metrics);
+            BatchCompiler.report(result, System.err);
+            if (metrics != null) {
+                Files.writeString(metricsFile, metrics.toJson());
+            }
+            return result.ok() ? 0 : 1;
+        }
+        try (LexingTokenStream stream = ScannerLexer.open(file)) {
+            ScannerLexer.Parser parser = new ScannerLexer.Parser(stream, TraceLevel.RULES, ParseListener.CONSOLE);
+            parser.setRecovery(true);
+            if (metrics != null) {
+                stream.setMetrics(metrics);
+                parser.setMetrics(metrics);
+                metrics.file();
+            }
+            try {
+                Ast ast = parser.parse();
+                if (parser.diagnostics().isEmpty()) {
+                    parser.diagnostics().addAll(SemanticAnalyzer.analyze(ast));
+                }
+            } catch (ScannerLexer.SyntaxError e) {
+                parser.diagnostics().add(Diagnostic.of(e));
+            }
+            BatchCompiler.report(Path.of(file), parser.diagnostics(), System.err);
+            if (metrics != null) {
+                Files.writeString(metricsFile, metrics.toJson());
+            }
+            return parser.diagnostics().isEmpty() ? 0 : 1;
+        }
+    }
+
+    /**
+     * Compiles a source file, or one written by {@code save}, to bytecode and runs it on
+     * stdin and stdout. The {@link Optimizer}
+     * runs first unless {@code -O0} is given. {@code -S} prints the bytecode instead;
+     * {@code -jit} runs it as a JVM class where it fits in one; {@code -stats} reports
+     * instruction counts before and after optimizing, and run time, on stderr.
+     */
+    private static int run(List<String> args) throws IOException {
+        boolean optimize = true;
+        boolean disassemble = false;
+        boolean jit = false;
+        boolean stats = false;
+        int i = 0;
+        for (; i < args.size() && args.get(i).startsWith("-"); i++) {
+            switch (args.get(i)) {
+                case "-O0": optimize = false; break;
+                case "-S": disassemble = true; break;
+                case "-jit": jit = true; break;
+                case "-stats": stats = true; break;
+                default: usage();
+            }
+        }
+        if (i != args.size() - 1) usage();
+        String file = args.get(i);
+
+        Ast ast = ParsedFile.isParsedFile(Path.of(file)) ? ParsedFile.open(Path.of(file)).ast() : check(file);
+        if (ast == null) {
+            return 1;
+        }
+
+        if (optimize) {
+            int before = stats ? BytecodeCompiler.compile(ast).instructionCount() : 0;
+            Optimizer optimizer = Optimizer.optimize(ast);
+            if (stats) {
+                System.err.println(optimizer + "; " + before + " instructions before optimizing");
+            }
+        }
+        Bytecode program = BytecodeCompiler.compile(ast);
+        if (disassemble) {
+            System.out.print(program.disassemble());
+            return 0;
+        }
+        JvmCompiler.Program compiled = null;
+        if (jit) {
+            try {
+                compiled = JvmCompiler.compile(program);
+            } catch (IllegalArgumentException e) {
+                System.err.println(file + ": running on the VM: " + e.getMessage());
+            }
+        }
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+        ProgramIo io = ProgramIo.of(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        VirtualMachine vm = new VirtualMachine(program, io);
+        long start = System.nanoTime();
+        int status = 0;
+        try {
+            if (compiled != null) {
+                compiled.run(io);
+            } else {
+                vm.run();
+            }
+        } catch (VirtualMachine.RuntimeError e) {
+            System.err.println(file + ":" + e.line + ": " + e.getMessage());
+            status = 1;
+        } finally {
+            out.flush();
+        }
+        if (stats && compiled != null) {
+            System.err.printf("%d instructions in bytecode, run as a JVM class in %.1f ms%n",
+                    program.instructionCount(), (System.nanoTime() - start) / 1e6);
+        } else if (stats) {
+            long nanos = System.nanoTime() - start;
+            System.err.printf("%d instructions in bytecode, %d executed in %.1f ms (%.1f M/s)%n",
+                    program.instructionCount(), vm.executed(), nanos / 1e6, vm.executed() * 1e3 / Math.max(1, nanos));
+        }
+        return status;
+    }
+
+    /**
+     * Parses and checks a file, printing its diagnostics. Returns null if there were any.
+     */
+    private static Ast check(String file) throws IOException {
+        try (LexingTokenStream stream = ScannerLexer.open(file)) {
+            ScannerLexer.Parser parser = new ScannerLexer.Parser(stream, TraceLevel.OFF, ParseListener.NONE);
+            parser.setRecovery(true);
+            Ast ast = null;
+            try {
+                ast = parser.parse();
+                if (parser.diagnostics().isEmpty()) {
+                    parser.diagnostics().addAll(SemanticAnalyzer.analyze(ast));
+                }
+            } catch (ScannerLexer.SyntaxError e) {
+                parser.diagnostics().add(Diagnostic.of(e));
+            }
+            BatchCompiler.report(Path.of(file), parser.diagnostics(), System.err);
+            return parser.diagnostics().isEmpty() ? ast : null;
+        }
+    }
+
+    /**
+     * Serves the Language Server Protocol on stdin and stdout until the editor says {@code exit}.
+     */
+    private static int lsp(List<String> args) throws IOException {
+        int debounce = LanguageServer.DEFAULT_DEBOUNCE_MILLIS;
+        if (args.size() == 2 && args.get(0).equals("-debounce")) {
+            debounce = Integer.parseInt(args.get(1));
+        } else if (!args.isEmpty()) {
+            usage();
+        }
+        return new LanguageServer(System.in, System.out, debounce).run();
+    }
+
+    /**
+     * Writes the tokens and checked tree of a source file as a {@link ParsedFile}, which
+     * {@code tokens} and {@code run} accept in place of the source.
+     */
+    private static int save(List<String> args) throws IOException {
+        if (args.size() != 2) usage();
+        String file = args.get(0);
+        TokenBuffer tokens;
+        try {
+            tokens = TokenBuffer.scan(Path.of(file));
+        } catch (ScannerLexer.SyntaxError e) {
+            System.err.println(file + ":" + Diagnostic.of(e));
+            return 1;
+        }
+        ScannerLexer.Parser parser = new ScannerLexer.Parser(tokens.stream(), TraceLevel.OFF, ParseListener.NONE);
+        parser.setRecovery(true);
+        try {
+            Ast ast = parser.parse();
+            if (parser.diagnostics().isEmpty()) {
+                parser.diagnostics().addAll(SemanticAnalyzer.analyze(ast));
+            }
+            if (parser.diagnostics().isEmpty()) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(args.get(1))), 1 << 16)) {
+                    ParsedFile.write(out, tokens, ast);
+                }
+                return 0;
+            }
+        } catch (ScannerLexer.SyntaxError e) {
+            parser.diagnostics().add(Diagnostic.of(e));
+        }
+        for (Diagnostic diagnostic : parser.diagnostics()) {
+            System.err.println(file + ":" + diagnostic);
+            System.err.print(diagnostic.excerpt(tokens.sourceMap()));
+        }
+        return 1;
+    }
+}
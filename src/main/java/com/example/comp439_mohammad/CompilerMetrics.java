@@ -0,0 +1,268 @@
+package com.example.comp439_mohammad;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Measurements of the compiler's phases. Each phase records how often it ran, its wall
+ * time, the tokens and source lines it went through and the bytes its thread allocated.
+ * The deepest nesting the parser reached is recorded as well.
+ *
+ * <p>Phases nest: a function's {@code declarations} and {@code block} run inside its
+ * {@code functionDecl}. Figures are inclusive of nested phases. Parser phases also
+ * include the scanning they pull through a {@link LexingTokenStream}; {@code scan} gives
+ * that scanning on its own.
+ *
+ * <p>Every run of a parser phase is also committed as a {@link PhaseEvent}, so a JFR
+ * recording ({@code -XX:StartFlightRecording}) shows where a slow compile spent its time.
+ * {@link #toJson()} gives the totals.
+ *
+ * <p>An instance belongs to one thread; {@link #add} merges the metrics of several.
+ */
+final class CompilerMetrics {
+
+    static final int SCAN = 0;
+    static final int LIB_DECL = 1;
+    static final int DECLARATIONS = 2;
+    static final int FUNCTION_DECL = 3;
+    static final int BLOCK = 4;
+    static final int SEMANTIC = 5;
+    static final int PHASES = 6;
+
+    private static final String[] NAMES = {"scan", "libDecl", "declarations", "functionDecl", "block", "semantic"};
+
+    @Name("com.example.comp439_mohammad.Phase")
+    @Label("Compiler Phase")
+    @Category("Compiler")
+    @Description("One run of a scanner or parser phase")
+    static final class PhaseEvent extends Event {
+        @Label("Source")
+        String source;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Tokens")
+        int tokens;
+
+        @Label("Lines")
+        int lines;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private final String source;
+
+    private final long[] counts = new long[PHASES];
+    private final long[] nanos = new long[PHASES];
+    private final long[] tokens = new long[PHASES];
+    private final long[] lines = new long[PHASES];
+    private final long[] allocated = new long[PHASES];
+    private int maxDepth;
+    private int files;
+
+    // Phases that have begun and not yet ended.
+    private int[] openPhases = new int[8];
+    private long[] openNanos = new long[8];
+    private int[] openTokens = new int[8];
+    private int[] openLines = new int[8];
+    private long[] openAllocated = new long[8];
+    private PhaseEvent[] openEvents = new PhaseEvent[8];
+    private int open;
+
+    CompilerMetrics(String source) {
+        this.source = source;
+    }
+
+    static String name(int phase) {
+        return NAMES[phase];
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or 0 where the JVM cannot tell.
+     */
+    static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Starts a run of {@code phase} with the token stream at {@code position} and the
+     * next token on {@code line}.
+     */
+    void begin(int phase, int position, int line) {
+        if (open == openPhases.length) {
+            int capacity = open * 2;
+            openPhases = Arrays.copyOf(openPhases, capacity);
+            openNanos = Arrays.copyOf(openNanos, capacity);
+            openTokens = Arrays.copyOf(openTokens, capacity);
+            openLines = Arrays.copyOf(openLines, capacity);
+            openAllocated = Arrays.copyOf(openAllocated, capacity);
+            openEvents = Arrays.copyOf(openEvents, capacity);
+        }
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        openPhases[open] = phase;
+        openTokens[open] = position;
+        openLines[open] = line;
+        openAllocated[open] = allocatedBytes();
+        openEvents[open] = event;
+        openNanos[open] = System.nanoTime();
+        open++;
+    }
+
+    /**
+     * Ends the innermost run begun with {@link #begin}, which must be of {@code phase}.
+     */
+    void end(int phase, int position, int line) {
+        long now = System.nanoTime();
+        open--;
+        if (openPhases[open] != phase) {
+            throw new IllegalStateException("Ending " + NAMES[phase] + " inside " + NAMES[openPhases[open]]);
+        }
+        int tokenCount = position - openTokens[open];
+        int lineCount = Math.max(0, line - openLines[open]);
+        long bytes = allocatedBytes() - openAllocated[open];
+        record(phase, now - openNanos[open], tokenCount, lineCount, bytes);
+
+        PhaseEvent event = openEvents[open];
+        openEvents[open] = null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.phase = NAMES[phase];
+            event.tokens = tokenCount;
+            event.lines = lineCount;
+            event.allocated = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Adds one run of a phase measured by the caller, such as scanning a line, which is
+     * too frequent to commit as an event of its own.
+     */
+    void record(int phase, long nanos, int tokens, int lines, long allocated) {
+        this.counts[phase]++;
+        this.nanos[phase] += nanos;
+        this.tokens[phase] += tokens;
+        this.lines[phase] += lines;
+        this.allocated[phase] += allocated;
+    }
+
+    void depth(int depth) {
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    /**
+     * Counts one more source file measured by these metrics.
+     */
+    void file() {
+        files++;
+    }
+
+    long count(int phase) {
+        return counts[phase];
+    }
+
+    long nanos(int phase) {
+        return nanos[phase];
+    }
+
+    long tokens(int phase) {
+        return tokens[phase];
+    }
+
+    long lines(int phase) {
+        return lines[phase];
+    }
+
+    long allocated(int phase) {
+        return allocated[phase];
+    }
+
+    int maxDepth() {
+        return maxDepth;
+    }
+
+    synchronized void add(CompilerMetrics other) {
+        for (int phase = 0; phase < PHASES; phase++) {
+            counts[phase] += other.counts[phase];
+            nanos[phase] += other.nanos[phase];
+            tokens[phase] += other.tokens[phase];
+            lines[phase] += other.lines[phase];
+            allocated[phase] += other.allocated[phase];
+        }
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        files += other.files;
+    }
+
+    synchronized String toJson() {
+        StringBuilder json = new StringBuilder(128 + 160 * PHASES);
+        json.append("{\n  \"source\": ");
+        string(json, source);
+        json.append(",\n  \"files\": ").append(files);
+        json.append(",\n  \"maxDepth\": ").append(maxDepth);
+        json.append(",\n  \"allocationMeasured\": ").append(THREADS != null);
+        json.append(",\n  \"phases\": {");
+        for (int phase = 0; phase < PHASES; phase++) {
+            json.append(phase == 0 ? "\n" : ",\n").append("    ");
+            string(json, NAMES[phase]);
+            json.append(": {\"count\": ").append(counts[phase])
+                    .append(", \"nanos\": ").append(nanos[phase])
+                    .append(", \"tokens\": ").append(tokens[phase])
+                    .append(", \"lines\": ").append(lines[phase])
+                    .append(", \"allocatedBytes\": ").append(allocated[phase])
+                    .append('}');
+        }
+        json.append("\n  }\n}\n");
+        return json.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int phase = 0; phase < PHASES; phase++) {
+            if (counts[phase] == 0) continue;
+            text.append(String.format("%-13s %8d runs %10.2f ms %10d tokens %8d lines %12d bytes%n", NAMES[phase],
+                    counts[phase], nanos[phase] / 1e6, tokens[phase], lines[phase], allocated[phase]));
+        }
+        return text.append("max depth ").append(maxDepth).toString();
+    }
+
+    private static void string(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.comp439_mohammad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Single-pass, table driven replacement for the old regex split in
+ * {@code ScannerLexer.tokenizeLine}. Every character is looked at once and
+ * two-character operators are taken with maximal munch, producing exactly the
+ * token stream the split based scanner produced.
+ */
+final class DfaScanner {
+
+    private static final byte WORD = 0;
+    private static final byte SPACE = 1;
+    private static final byte SPECIAL = 2;
+
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (char c : " \t\n\u000B\f\r".toCharArray()) {
+            CLASSES[c] = SPACE;
+        }
+        for (char c : "(){};,<>=:+*-!".toCharArray()) {
+            CLASSES[c] = SPECIAL;
+        }
+    }
+
+    private DfaScanner() {
+    }
+
+    static List<ScannerLexer.Token> tokenizeLine(CharSequence line, int lineNumber) throws ScannerLexer.SyntaxError {
+        List<ScannerLexer.Token> tokens = new ArrayList<>();
+        scanLine(line, 0, line.length(), lineNumber, tokens::add);
+        return tokens;
+    }
+
+    static void scanLine(CharSequence src, int start, int end, int lineNumber, Consumer<? super ScannerLexer.Token> out)
+            throws ScannerLexer.SyntaxError {
+        scanLine(src, start, end, lineNumber, TokenSink.of(out));
+    }
+
+    static void scanLine(CharSequence src, int start, int end, int lineNumber, TokenSink out)
+            throws ScannerLexer.SyntaxError {
+        boolean inIncludeContext = startsWithInclude(src, start, end);
+
+        int i = start;
+        while (i < end) {
+            char c = src.charAt(i);
+            byte cls = classOf(c);
+
+            if (cls == SPACE) {
+                i++;
+                continue;
+            }
+
+            if (cls == SPECIAL) {
+                if (inIncludeContext && (c == '<' || c == '>')) {
+                    out.token(src, TokenKind.PUNCTUATION, c == '<' ? Symbol.LT : Symbol.GT, i, i + 1, lineNumber, i - start + 1);
+                    i++;
+                    continue;
+                }
+                int pair = i + 1 < end ? operatorPair(c, src.charAt(i + 1)) : Symbol.NONE;
+                if (pair != Symbol.NONE) {
+                    out.token(src, TokenKind.OPERATOR, pair, i, i + 2, lineNumber, i - start + 1);
+                    i += 2;
+                    continue;
+                }
+                int symbol = special(c);
+                if (symbol == Symbol.NONE) {
+                    throw new ScannerLexer.SyntaxError("Unexpected token '" + c + "' on line " + lineNumber,
+                            lineNumber, i - start + 1, null, String.valueOf(c));
+                }
+                out.token(src, Symbol.isOperator(symbol) ? TokenKind.OPERATOR : TokenKind.PUNCTUATION,
+                        symbol, i, i + 1, lineNumber, i - start + 1);
+                i++;
+                continue;
+            }
+
+            int wordStart = i;
+            while (i < end && classOf(src.charAt(i)) == WORD) {
+                i++;
+            }
+            int wordEnd = i;
+            // String.trim() semantics: the old scanner trimmed control characters off each fragment.
+            while (wordStart < wordEnd && src.charAt(wordStart) <= ' ') wordStart++;
+            while (wordEnd > wordStart && src.charAt(wordEnd - 1) <= ' ') wordEnd--;
+            if (wordStart == wordEnd) continue;
+
+            word(src, wordStart, wordEnd, lineNumber, wordStart - start + 1, out);
+        }
+    }
+
+    private static byte classOf(char c) {
+        return c < 128 ? CLASSES[c] : WORD;
+    }
+
+    private static boolean startsWithInclude(CharSequence src, int start, int end) {
+        int i = start;
+        while (i < end && src.charAt(i) <= ' ') i++;
+        String include = "#include";
+        if (end - i < include.length()) return false;
+        for (int k = 0; k < include.length(); k++) {
+            if (src.charAt(i + k) != include.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    private static int operatorPair(char first, char second) {
+        if (first == ':') {
+            return second == '=' ? Symbol.ASSIGN : Symbol.NONE;
+        }
+        if (first == '=') {
+            switch (second) {
+                case '<':
+                    return Symbol.LE;
+                case '>':
+                    return Symbol.GE;
+                case '!':
+                    return Symbol.NE;
+                default:
+                    return Symbol.NONE;
+            }
+        }
+        return Symbol.NONE;
+    }
+
+    private static int special(char c) {
+        switch (c) {
+            case '+': return Symbol.PLUS;
+            case '-': return Symbol.MINUS;
+            case '*': return Symbol.STAR;
+            case '=': return Symbol.EQ;
+            case '<': return Symbol.LT;
+            case '>': return Symbol.GT;
+            case '(': return Symbol.LPAREN;
+            case ')': return Symbol.RPAREN;
+            case '{': return Symbol.LBRACE;
+            case '}': return Symbol.RBRACE;
+            case ';': return Symbol.SEMICOLON;
+            case ',': return Symbol.COMMA;
+            default: return Symbol.NONE;
+        }
+    }
+
+    private static void word(CharSequence src, int start, int end, int lineNumber, int column, TokenSink out)
+            throws ScannerLexer.SyntaxError {
+        int symbol = Lexicon.lookup(src, start, end);
+        if (Symbol.isReserved(symbol)) {
+            out.token(src, TokenKind.RESERVED_WORD, symbol, start, end, lineNumber, column);
+        } else if (Symbol.isOperator(symbol)) {
+            out.token(src, TokenKind.OPERATOR, symbol, start, end, lineNumber, column);
+        } else if (isNumber(src, start, end)) {
+            out.token(src, TokenKind.NUMBER, Symbol.NONE, start, end, lineNumber, column);
+        } else if (isIdentifier(src, start, end)) {
+            out.token(src, TokenKind.IDENTIFIER, Symbol.NONE, start, end, lineNumber, column);
+        } else {
+            String part = src.subSequence(start, end).toString();
+            throw new ScannerLexer.SyntaxError("Unexpected token '" + part + "' on line " + lineNumber,
+                    lineNumber, column, null, part);
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isNumber(CharSequence src, int start, int end) {
+        int i = start;
+        while (i < end && isDigit(src.charAt(i))) i++;
+        if (i == start) return false;
+        if (i == end) return true;
+        if (src.charAt(i) != '.') return false;
+        int fraction = ++i;
+        while (i < end && isDigit(src.charAt(i))) i++;
+        return i > fraction && i == end;
+    }
+
+    private static boolean isIdentifier(CharSequence src, int start, int end) {
+        if (!isIdentifierStart(src.charAt(start))) return false;
+        for (int i = start + 1; i < end; i++) {
+            char c = src.charAt(i);
+            if (!isIdentifierStart(c) && !isDigit(c)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.comp439_mohammad;
+
+/**
+ * One problem found in a source file, as collected by the parser in recovery mode or
+ * by {@link SemanticAnalyzer}. {@code expected} and {@code found} are null, and
+ * {@code column} is 0, when they do not apply.
+ */
+final class Diagnostic {
+
+    final int line;
+    final int column;
+    final String expected;
+    final String found;
+    final String message;
+
+    Diagnostic(int line, int column, String expected, String found, String message) {
+        this.line = line;
+        this.column = column;
+        this.expected = expected;
+        this.found = found;
+        this.message = message;
+    }
+
+    static Diagnostic of(ScannerLexer.SyntaxError error) {
+        return new Diagnostic(error.line, error.column, error.expected, error.found, error.getMessage());
+    }
+
+    /**
+     * The offending line from {@code map} with the problem underlined; the length of
+     * {@code found}, or one character, at {@code column}, or the whole line without one.
+     */
+    String excerpt(SourceMap map) {
+        return map.excerpt(line, column, found != null && !found.isEmpty() ? found.length() : 1);
+    }
+
+    @Override
+    public String toString() {
+        return line + (column > 0 ? ":" + column : "") + ": " + message;
+    }
+}
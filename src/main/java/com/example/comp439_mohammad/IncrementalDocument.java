@@ -0,0 +1,491 @@
+package com.example.comp439_mohammad;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Editor buffer that keeps its tokens and syntax tree up to date as lines change.
+ *
+ * <p>Every line keeps the tokens it was scanned into. The scanner carries no state from
+ * one line to the next, so an edit only has to rescan the lines it touched, and it does
+ * so lazily, when the parser next asks for them.
+ *
+ * <p>The program is split into units on line boundaries: the prologue ({@code #include},
+ * {@code const}, {@code var}), one unit per {@code function}, and the main block with its
+ * {@code exit}. An edit inside a single unit reparses just that unit into the same
+ * {@link Ast} and relinks it into the program; the other units keep their subtrees.
+ * Units after the edit are shifted instead of touched, so their tree lines are corrected
+ * by {@link #line(int)}. Anything the units cannot express, such as an edit that adds a
+ * function or spans two units, falls back to reparsing the whole document.
+ *
+ * <p>Units go no finer than that: nested blocks and loop bodies are not units of their
+ * own, so any edit in the main block reparses all of it. That keeps edits well under a
+ * millisecond while the code is spread over functions, but a program that keeps most of
+ * 50,000 lines in its main block takes tens of milliseconds per edit.
+ *
+ * <p>Line indexes in this class are 0-based; lines in tokens, nodes and diagnostics are
+ * 1-based as everywhere else.
+ */
+final class IncrementalDocument {
+
+    private static final byte PROLOGUE = 0;
+    private static final byte FUNCTION = 1;
+    private static final byte MAIN = 2;
+
+    private static final class Line {
+        final String text;
+        ScannerLexer.Token[] tokens;
+        ScannerLexer.SyntaxError error;
+        // Line number the tokens were scanned with; the error message mentions it.
+        int scannedAs;
+
+        Line(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Unit {
+        final byte kind;
+        int first;
+        int end;
+        int node = Ast.NIL;
+        // Value of first when the unit was parsed; its tree lines are off by first - parsedFirst.
+        int parsedFirst;
+        int nodeCount;
+        List<Diagnostic> diagnostics = new ArrayList<>();
+
+        Unit(byte kind, int first) {
+            this.kind = kind;
+            this.first = first;
+            this.parsedFirst = first;
+        }
+    }
+
+    private final ArrayList<Line> lines = new ArrayList<>();
+    private Ast ast;
+    private int program = Ast.NIL;
+    // Null when the last full parse could not be split into units.
+    private List<Unit> units;
+    private List<Diagnostic> diagnostics = new ArrayList<>();
+    private int[] nodeUnits = new int[0];
+    private int liveNodes;
+    private boolean lastEditIncremental;
+
+    IncrementalDocument(CharSequence text) {
+        setText(text);
+    }
+
+    /**
+     * Replaces the whole buffer and parses it from scratch.
+     */
+    void setText(CharSequence text) {
+        lines.clear();
+        TextLineReader reader = new TextLineReader(text);
+        while (reader.nextLine()) {
+            lines.add(new Line(text.subSequence(reader.lineStart(), reader.lineEnd()).toString()));
+        }
+        reparseAll();
+    }
+
+    /**
+     * Replaces lines {@code [from, to)} with {@code replacement} and brings the tree up to date.
+     */
+    void replaceLines(int from, int to, List<String> replacement) {
+        if (from < 0 || to < from || to > lines.size()) {
+            throw new IndexOutOfBoundsException("Lines " + from + ".." + to + " of " + lines.size());
+        }
+        int unitIndex = units == null ? -1 : unitFor(from, to);
+
+        List<Line> added = new ArrayList<>(replacement.size());
+        for (String text : replacement) {
+            added.add(new Line(text));
+        }
+        lines.subList(from, to).clear();
+        lines.addAll(from, added);
+
+        if (unitIndex < 0) {
+            reparseAll();
+            return;
+        }
+        int delta = replacement.size() - (to - from);
+        units.get(unitIndex).end += delta;
+        for (int i = unitIndex + 1; i < units.size(); i++) {
+            units.get(i).first += delta;
+            units.get(i).end += delta;
+        }
+        if (!reparse(unitIndex) || reachedEnd(units.get(units.size() - 1).diagnostics)) {
+            reparseAll();
+            return;
+        }
+        // Reparsed units leave their old nodes behind in the arena; start afresh once they dominate.
+        if (ast.size() > 4 * liveNodes + 1024) {
+            reparseAll();
+            return;
+        }
+        lastEditIncremental = true;
+    }
+
+    void replaceLine(int line, String text) {
+        replaceLines(line, line + 1, List.of(text));
+    }
+
+    /**
+     * Whether edits have left enough dead nodes behind for {@link #compact()} to be worth
+     * it. Edits only compact by themselves once the tree is twice as big again; a caller
+     * with idle time, like {@link LanguageServer} once it has published diagnostics, can
+     * do it earlier so the full reparse does not land on an edit.
+     */
+    boolean hasGarbage() {
+        return ast.size() > 2 * liveNodes + 1024;
+    }
+
+    /**
+     * Reparses the whole document into a fresh tree, dropping the nodes edits left behind.
+     */
+    void compact() {
+        reparseAll();
+    }
+
+    /**
+     * Whether the last edit was handled by reparsing a single unit.
+     */
+    boolean lastEditIncremental() {
+        return lastEditIncremental;
+    }
+
+    int lineCount() {
+        return lines.size();
+    }
+
+    String text(int line) {
+        return lines.get(line).text;
+    }
+
+    /**
+     * Tokens of one line, scanned on first use. Tokens before a lexical error on the line are kept.
+     */
+    ScannerLexer.Token[] tokens(int line) {
+        return scanned(line).tokens;
+    }
+
+    Ast ast() {
+        return ast;
+    }
+
+    /**
+     * The PROGRAM node, or {@link Ast#NIL} if the program could not be parsed at all.
+     */
+    int program() {
+        return program;
+    }
+
+    /**
+     * Current 1-based source line of a node, allowing for lines inserted or removed above it
+     * since it was parsed.
+     */
+    int line(int node) {
+        if (units == null || node >= nodeUnits.length) {
+            return ast.line(node);
+        }
+        Unit unit = units.get(nodeUnits[node]);
+        return ast.line(node) + unit.first - unit.parsedFirst;
+    }
+
+    List<Diagnostic> diagnostics() {
+        if (units == null) {
+            return diagnostics;
+        }
+        List<Diagnostic> all = new ArrayList<>();
+        for (int i = 0; i < units.size(); i++) {
+            Unit unit = units.get(i);
+            // Messages spell out line numbers, so shifted units with errors are parsed again.
+            if (!unit.diagnostics.isEmpty() && unit.first != unit.parsedFirst && !reparse(i)) {
+                reparseAll();
+                return diagnostics();
+            }
+            all.addAll(units.get(i).diagnostics);
+        }
+        return all;
+    }
+
+    /**
+     * Parses the whole document the way {@link ScannerLexer.Parser#parse()} does, but one
+     * unit at a time so that each unit's lines, nodes and diagnostics are known.
+     */
+    private void reparseAll() {
+        lastEditIncremental = false;
+        ast = new Ast(Math.max(256, liveNodes));
+        nodeUnits = new int[0];
+        LineStream stream = new LineStream(0, lines.size());
+        ScannerLexer.Parser parser = new ScannerLexer.Parser(stream, TraceLevel.OFF, ParseListener.NONE, ast);
+        parser.setRecovery(true);
+        diagnostics = parser.diagnostics();
+        List<Unit> parsed = new ArrayList<>();
+        try {
+            ScannerLexer.Token first = stream.peek();
+            int line = first != null ? first.line : 0;
+
+            Unit prologue = new Unit(PROLOGUE, 0);
+            int firstDecl = parser.parsePrologue();
+            parsed.add(finish(prologue, firstDecl, 0, 0));
+
+            int firstFunction = Ast.NIL;
+            int lastFunction = Ast.NIL;
+            while (stream.kind() == TokenKind.RESERVED_WORD && stream.symbol() == Symbol.FUNCTION) {
+                Unit unit = new Unit(FUNCTION, stream.peek().line - 1);
+                boolean ownLine = unit.first >= stream.lastLine;
+                int start = ast.size();
+                int reported = diagnostics.size();
+                int function = parser.parseFunction();
+                if (function != Ast.NIL) {
+                    firstFunction = firstFunction == Ast.NIL ? function : firstFunction;
+                    lastFunction = ast.append(lastFunction, function);
+                }
+                parsed = parsed != null && ownLine && function != Ast.NIL ? parsed : null;
+                if (parsed != null) parsed.add(finish(unit, function, start, reported));
+            }
+
+            ScannerLexer.Token newb = stream.peek();
+            Unit mainUnit = newb != null ? new Unit(MAIN, newb.line - 1) : null;
+            boolean ownLine = mainUnit != null && mainUnit.first >= stream.lastLine
+                    && newb.kind == TokenKind.RESERVED_WORD && newb.symbol == Symbol.NEWB;
+            int start = ast.size();
+            int reported = diagnostics.size();
+            int main = parser.parseMain();
+            parsed = parsed != null && ownLine && main != Ast.NIL ? parsed : null;
+            if (parsed != null) parsed.add(finish(mainUnit, main, start, reported));
+
+            program = ast.add(Ast.PROGRAM, firstDecl, firstFunction, main, line);
+            ast.setRoot(program);
+        } catch (ScannerLexer.SyntaxError e) {
+            diagnostics.add(Diagnostic.of(e));
+            program = Ast.NIL;
+            parsed = null;
+        }
+        liveNodes = ast.size();
+        units = parsed;
+        if (units != null) {
+            for (int i = 0; i < units.size(); i++) {
+                units.get(i).end = i + 1 < units.size() ? units.get(i + 1).first : lines.size();
+            }
+            nodeUnits = new int[ast.size()];
+            int node = 0;
+            for (int i = 0; i < units.size(); i++) {
+                Unit unit = units.get(i);
+                Arrays.fill(nodeUnits, node, node + unit.nodeCount, i);
+                node += unit.nodeCount;
+            }
+        }
+    }
+
+    /**
+     * Records what the parser produced for a unit: its node, the nodes added to the arena
+     * from {@code start} on and the diagnostics from index {@code reported} on.
+     */
+    private Unit finish(Unit unit, int node, int start, int reported) {
+        unit.node = node;
+        unit.nodeCount = ast.size() - start;
+        unit.diagnostics = new ArrayList<>(diagnostics.subList(reported, diagnostics.size()));
+        return unit;
+    }
+
+    /**
+     * Last unit starting at or before {@code line}.
+     */
+    private static int unitAt(List<Unit> units, int line) {
+        int low = 0;
+        int high = units.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (units.get(mid).first <= line) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The unit that wholly contains lines {@code [from, to)}, or -1. Lines inserted right
+     * before a unit go to the unit above, so every unit keeps starting with its keyword.
+     */
+    private int unitFor(int from, int to) {
+        int index = unitAt(units, from);
+        if (from == to) {
+            while (index > 0 && units.get(index).first == from) index--;
+        }
+        Unit unit = units.get(index);
+        return to <= unit.end ? index : -1;
+    }
+
+    private boolean reparse(int index) {
+        Unit unit = units.get(index);
+        int start = ast.size();
+        LineStream stream = new LineStream(unit.first, unit.end);
+        ScannerLexer.Parser parser = new ScannerLexer.Parser(stream, TraceLevel.OFF, ParseListener.NONE, ast);
+        parser.setRecovery(true);
+        int node;
+        ScannerLexer.Token first;
+        try {
+            first = stream.peek();
+            if (unit.kind != PROLOGUE) {
+                int keyword = unit.kind == FUNCTION ? Symbol.FUNCTION : Symbol.NEWB;
+                if (first == null || first.line != unit.first + 1
+                        || first.kind != TokenKind.RESERVED_WORD || first.symbol != keyword) {
+                    return false;
+                }
+            }
+            switch (unit.kind) {
+                case PROLOGUE:
+                    node = parser.parsePrologue();
+                    break;
+                case FUNCTION:
+                    node = parser.parseFunction();
+                    break;
+                default:
+                    node = parser.parseMain();
+            }
+            // Tokens left over belong to some other kind of unit.
+            if (!stream.isAtEnd() || (unit.kind != PROLOGUE && node == Ast.NIL)) {
+                return false;
+            }
+            // An error at the end of the unit would have been reported against whatever
+            // follows it in a full parse.
+            if (reachedEnd(parser.diagnostics())) return false;
+        } catch (ScannerLexer.SyntaxError e) {
+            return false;
+        }
+
+        switch (unit.kind) {
+            case PROLOGUE:
+                ast.setA(program, node);
+                // The program starts at the first token, which may now be further up or down.
+                ast.setLine(program, first != null ? first.line : units.get(1).first + 1);
+                break;
+            case FUNCTION:
+                Unit previous = units.get(index - 1);
+                if (previous.kind == FUNCTION) {
+                    ast.setNext(previous.node, node);
+                } else {
+                    ast.setB(program, node);
+                }
+                ast.setNext(node, ast.next(unit.node));
+                break;
+            default:
+                ast.setC(program, node);
+        }
+        unit.node = node;
+        unit.parsedFirst = unit.first;
+        unit.diagnostics = parser.diagnostics();
+
+        int end = ast.size();
+        if (nodeUnits.length < end) {
+            nodeUnits = Arrays.copyOf(nodeUnits, Math.max(end, nodeUnits.length * 2));
+        }
+        Arrays.fill(nodeUnits, start, end, index);
+        liveNodes += end - start - unit.nodeCount;
+        unit.nodeCount = end - start;
+        return true;
+    }
+
+    /**
+     * Whether any of the diagnostics is for running out of input. The parser reports those
+     * at the number of tokens read rather than a line, so they go stale when an edit
+     * anywhere above changes the token count.
+     */
+    private static boolean reachedEnd(List<Diagnostic> diagnostics) {
+        for (Diagnostic diagnostic : diagnostics) {
+            if (diagnostic.found != null && diagnostic.found.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    private Line scanned(int index) {
+        Line line = lines.get(index);
+        int number = index + 1;
+        if (line.tokens == null || (line.error != null && line.scannedAs != number)) {
+            List<ScannerLexer.Token> tokens = new ArrayList<>();
+            line.error = null;
+            try {
+                DfaScanner.scanLine(line.text, 0, line.text.length(), number, tokens::add);
+            } catch (ScannerLexer.SyntaxError e) {
+                line.error = e;
+            }
+            line.tokens = tokens.toArray(new ScannerLexer.Token[0]);
+            line.scannedAs = number;
+        }
+        return line;
+    }
+
+    /**
+     * Token stream over a range of lines, served from the per-line token arrays. Like
+     * {@link LexingTokenStream}, a line's lexical error is thrown after its good tokens.
+     */
+    private final class LineStream implements TokenStream {
+        private final int end;
+        private int next;
+        private final ArrayDeque<ScannerLexer.Token> pending = new ArrayDeque<>();
+        private int position;
+        // Line of the last token consumed.
+        int lastLine;
+
+        LineStream(int first, int end) {
+            this.next = first;
+            this.end = end;
+        }
+
+        @Override
+        public ScannerLexer.Token peek(int offset) throws ScannerLexer.SyntaxError {
+            if (offset >= LOOKAHEAD) {
+                throw new IllegalArgumentException("Lookahead of " + offset + " exceeds " + LOOKAHEAD);
+            }
+            while (pending.size() <= offset) {
+                if (!fill()) break;
+            }
+            if (offset == 0) {
+                return pending.peekFirst();
+            }
+            int index = 0;
+            for (ScannerLexer.Token token : pending) {
+                if (index++ == offset) return token;
+            }
+            return null;
+        }
+
+        @Override
+        public ScannerLexer.Token advance() throws ScannerLexer.SyntaxError {
+            if (peek(0) == null) {
+                return null;
+            }
+            position++;
+            ScannerLexer.Token token = pending.pollFirst();
+            lastLine = token.line;
+            return token;
+        }
+
+        @Override
+        public int position() {
+            return position;
+        }
+
+        private boolean fill() throws ScannerLexer.SyntaxError {
+            if (next >= end) {
+                return false;
+            }
+            int number = next + 1;
+            Line line = scanned(next++);
+            for (ScannerLexer.Token token : line.tokens) {
+                // Lines above may have been inserted or removed since the token was scanned.
+                token.line = number;
+                pending.addLast(token);
+            }
+            if (line.error != null) {
+                throw line.error;
+            }
+            return true;
+        }
+    }
+}
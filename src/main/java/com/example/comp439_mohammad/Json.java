@@ -0,0 +1,254 @@
+package com.example.comp439_mohammad;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for {@link LanguageServer}: objects read into {@link LinkedHashMap}s,
+ * arrays into {@link ArrayList}s, whole numbers into {@link Long}s and other numbers into
+ * {@link Double}s. Writing also takes {@code int[]}, so a large array of numbers never
+ * has to be boxed.
+ */
+final class Json {
+
+    private final String text;
+    private int at;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.value();
+        json.skipSpace();
+        if (json.at != text.length()) {
+            throw json.error("Trailing characters");
+        }
+        return value;
+    }
+
+    static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(out, value);
+        return out.toString();
+    }
+
+    static void write(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof String string) {
+            string(out, string);
+        } else if (value instanceof Map<?, ?> map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!first) out.append(',');
+                first = false;
+                string(out, entry.getKey().toString());
+                out.append(':');
+                write(out, entry.getValue());
+            }
+            out.append('}');
+        } else if (value instanceof List<?> list) {
+            out.append('[');
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) out.append(',');
+                write(out, list.get(i));
+            }
+            out.append(']');
+        } else if (value instanceof int[] numbers) {
+            out.append('[');
+            for (int i = 0; i < numbers.length; i++) {
+                if (i > 0) out.append(',');
+                out.append(numbers[i]);
+            }
+            out.append(']');
+        } else if (value instanceof Double number && number == Math.rint(number) && !number.isInfinite()) {
+            out.append(number.longValue());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else {
+            throw new IllegalArgumentException("Not a JSON value: " + value.getClass().getName());
+        }
+    }
+
+    private static void string(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private Object value() {
+        skipSpace();
+        if (at == text.length()) {
+            throw error("Unexpected end");
+        }
+        char c = text.charAt(at);
+        switch (c) {
+            case '{': {
+                at++;
+                Map<String, Object> object = new LinkedHashMap<>();
+                skipSpace();
+                if (peek() == '}') {
+                    at++;
+                    return object;
+                }
+                while (true) {
+                    skipSpace();
+                    if (peek() != '"') throw error("Expected a name");
+                    String name = string();
+                    skipSpace();
+                    expect(':');
+                    object.put(name, value());
+                    skipSpace();
+                    if (peek() == ',') {
+                        at++;
+                    } else {
+                        expect('}');
+                        return object;
+                    }
+                }
+            }
+            case '[': {
+                at++;
+                List<Object> array = new ArrayList<>();
+                skipSpace();
+                if (peek() == ']') {
+                    at++;
+                    return array;
+                }
+                while (true) {
+                    array.add(value());
+                    skipSpace();
+                    if (peek() == ',') {
+                        at++;
+                    } else {
+                        expect(']');
+                        return array;
+                    }
+                }
+            }
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                return number();
+        }
+    }
+
+    private String string() {
+        at++;
+        StringBuilder out = null;
+        int from = at;
+        while (true) {
+            if (at >= text.length()) throw error("Unterminated string");
+            char c = text.charAt(at);
+            if (c == '"') {
+                String tail = text.substring(from, at++);
+                return out == null ? tail : out.append(tail).toString();
+            }
+            if (c != '\\') {
+                at++;
+                continue;
+            }
+            if (out == null) out = new StringBuilder();
+            out.append(text, from, at);
+            if (at + 1 >= text.length()) throw error("Unterminated string");
+            char escape = text.charAt(at + 1);
+            at += 2;
+            switch (escape) {
+                case 'b': out.append('\b'); break;
+                case 'f': out.append('\f'); break;
+                case 'n': out.append('\n'); break;
+                case 'r': out.append('\r'); break;
+                case 't': out.append('\t'); break;
+                case 'u':
+                    if (at + 4 > text.length()) throw error("Bad escape");
+                    try {
+                        out.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad escape");
+                    }
+                    at += 4;
+                    break;
+                default: out.append(escape);
+            }
+            from = at;
+        }
+    }
+
+    private Object number() {
+        int start = at;
+        boolean whole = true;
+        while (at < text.length()) {
+            char c = text.charAt(at);
+            if (c == '.' || c == 'e' || c == 'E') {
+                whole = false;
+            } else if (!(c >= '0' && c <= '9' || c == '-' || c == '+')) {
+                break;
+            }
+            at++;
+        }
+        String number = text.substring(start, at);
+        try {
+            if (whole) {
+                try {
+                    return Long.parseLong(number);
+                } catch (NumberFormatException e) {
+                    // Too long for a long.
+                }
+            }
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("Bad number '" + number + "'");
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, at)) throw error("Unexpected character");
+        at += word.length();
+        return value;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) throw error("Expected '" + c + "'");
+        at++;
+    }
+
+    private char peek() {
+        return at < text.length() ? text.charAt(at) : 0;
+    }
+
+    private void skipSpace() {
+        while (at < text.length() && text.charAt(at) <= ' ') {
+            at++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + at + " of JSON text");
+    }
+}
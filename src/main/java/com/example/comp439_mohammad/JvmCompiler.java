@@ -0,0 +1,308 @@
+package com.example.comp439_mohammad;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.Label;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Translates {@link Bytecode} into a JVM class with the class-file API and defines it
+ * as a hidden class, so HotSpot compiles the program itself rather than a loop that
+ * interprets it. Every {@code function} becomes a static method whose {@code var}s are
+ * JVM locals, global variables become static fields, and constants are loaded straight
+ * from the constant pool. The generated code keeps the source line it is on in a static
+ * field, so a failure is reported at its line like the {@link VirtualMachine} does; stack
+ * traces cannot serve, since they leave out the frames of hidden classes. Source lines
+ * also go into the line number table, for profilers and debuggers.
+ *
+ * <p>A program whose main block or a function does not fit in one JVM method (64 KB of
+ * code) cannot be compiled this way; {@link #compile(Bytecode)} then throws
+ * {@link IllegalArgumentException} and the caller should run it on the VM instead.
+ */
+final class JvmCompiler {
+
+    /**
+     * Thrown by {@code exit} inside a function to unwind to {@link Program#run}.
+     */
+    static final class Halt extends RuntimeException {
+        Halt() {
+            super(null, null, false, false);
+        }
+    }
+
+    static final Halt HALT = new Halt();
+
+    /**
+     * A compiled program, ready to run any number of times.
+     */
+    static final class Program {
+        private final MethodHandle main;
+        private final MethodHandle line;
+
+        Program(MethodHandle main, MethodHandle line) {
+            this.main = main;
+            this.line = line;
+        }
+
+        void run(ProgramIo io) throws VirtualMachine.RuntimeError, IOException {
+            try {
+                main.invokeExact(io);
+            } catch (Halt e) {
+                // exit inside a function
+            } catch (ArithmeticException e) {
+                throw new VirtualMachine.RuntimeError("Division by zero", line());
+            } catch (EOFException e) {
+                throw new VirtualMachine.RuntimeError("Input ended", line());
+            } catch (NumberFormatException e) {
+                throw new VirtualMachine.RuntimeError("Input is not a number: " + e.getMessage(), line());
+            } catch (StackOverflowError e) {
+                throw new VirtualMachine.RuntimeError("Call stack overflow", line());
+            } catch (IOException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            } finally {
+                io.flush();
+            }
+        }
+
+        /**
+         * Source line the compiled program was last on.
+         */
+        private int line() {
+            try {
+                return (int) line.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static final String CLASS_NAME = JvmCompiler.class.getPackageName() + ".CompiledProgram";
+    private static final String LINE = "line";
+    private static final ClassDesc CD_PROGRAM = ClassDesc.of(CLASS_NAME);
+    private static final ClassDesc CD_IO = ClassDesc.of(ProgramIo.class.getName());
+    private static final ClassDesc CD_COMPILER = ClassDesc.of(JvmCompiler.class.getName());
+    private static final ClassDesc CD_HALT = ClassDesc.of(Halt.class.getName());
+    private static final MethodTypeDesc MAIN_TYPE = MethodTypeDesc.of(ConstantDescs.CD_void, CD_IO);
+    private static final MethodTypeDesc FUNCTION_TYPE = MethodTypeDesc.of(ConstantDescs.CD_void);
+    private static final MethodTypeDesc READ_TYPE = MethodTypeDesc.of(ConstantDescs.CD_double);
+    private static final MethodTypeDesc WRITE_TYPE = MethodTypeDesc.of(ConstantDescs.CD_void, ConstantDescs.CD_double);
+
+    private final Bytecode program;
+    private final int[] code;
+
+    private JvmCompiler(Bytecode program) {
+        this.program = program;
+        this.code = program.code();
+    }
+
+    static Program compile(Bytecode program) {
+        byte[] bytes = new JvmCompiler(program).generate();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle main = lookup.findStatic(lookup.lookupClass(), "run",
+                    MethodType.methodType(void.class, ProgramIo.class));
+            MethodHandle line = lookup.findStaticGetter(lookup.lookupClass(), LINE, int.class);
+            return new Program(main, line);
+        } catch (IllegalAccessException | NoSuchMethodException | NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] generate() {
+        return ClassFile.of().build(CD_PROGRAM, type -> {
+            type.withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC);
+            type.withSuperclass(ConstantDescs.CD_Object);
+            type.withField("io", CD_IO, ClassFile.ACC_PRIVATE | ClassFile.ACC_STATIC);
+            type.withField(LINE, ConstantDescs.CD_int, ClassFile.ACC_PRIVATE | ClassFile.ACC_STATIC);
+            for (int slot = 0; slot < program.globals(); slot++) {
+                type.withField(global(slot), ConstantDescs.CD_double, ClassFile.ACC_PRIVATE | ClassFile.ACC_STATIC);
+            }
+            int[] entries = program.functionEntries();
+            for (int f = 0; f < entries.length; f++) {
+                int function = f;
+                int end = f + 1 < entries.length ? entries[f + 1] : program.mainEntry();
+                type.withMethodBody(method(f), FUNCTION_TYPE, ClassFile.ACC_PRIVATE | ClassFile.ACC_STATIC, body -> {
+                    // Every call starts with its variables at 0, like a fresh VM frame.
+                    for (int slot = 0; slot < program.functionLocals()[function]; slot++) {
+                        body.dconst_0();
+                        body.dstore(2 * slot);
+                    }
+                    translate(body, entries[function], end, false, 2 * program.functionLocals()[function]);
+                });
+            }
+            type.withMethodBody("run", MAIN_TYPE, ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, body -> {
+                body.aload(0);
+                body.putstatic(CD_PROGRAM, "io", CD_IO);
+                translate(body, program.mainEntry(), code.length, true, 1);
+            });
+        });
+    }
+
+    /**
+     * Emits the instructions from {@code start} to {@code end} into one method, using the
+     * local variable pair at {@code scratch} for temporaries.
+     */
+    private void translate(CodeBuilder body, int start, int end, boolean main, int scratch) {
+        // A label for every jump target in the range.
+        Label[] labels = new Label[end - start];
+        for (int pc = start; pc < end; pc += 1 + Opcode.operands(code[pc])) {
+            int opcode = code[pc];
+            if (opcode == Opcode.JUMP || Opcode.isConditionalJump(opcode)) {
+                int target = code[pc + 1] - start;
+                if (labels[target] == null) {
+                    labels[target] = body.newLabel();
+                }
+            }
+        }
+        double[] constants = program.constants();
+        int line = 0;
+        for (int pc = start; pc < end; pc += 1 + Opcode.operands(code[pc])) {
+            boolean target = labels[pc - start] != null;
+            if (target) {
+                body.labelBinding(labels[pc - start]);
+            }
+            if (program.line(pc) != line) {
+                line = program.line(pc);
+                body.lineNumber(line);
+                setLine(body, line);
+            } else if (target) {
+                // Reached by a jump, maybe from another line.
+                setLine(body, line);
+            }
+            int operand = Opcode.operands(code[pc]) > 0 ? code[pc + 1] : 0;
+            switch (code[pc]) {
+                case Opcode.PUSH:
+                    body.loadConstant(constants[operand]);
+                    break;
+                case Opcode.LOAD_GLOBAL:
+                    body.getstatic(CD_PROGRAM, global(operand), ConstantDescs.CD_double);
+                    break;
+                case Opcode.STORE_GLOBAL:
+                    body.putstatic(CD_PROGRAM, global(operand), ConstantDescs.CD_double);
+                    break;
+                case Opcode.LOAD_LOCAL:
+                    body.dload(2 * operand);
+                    break;
+                case Opcode.STORE_LOCAL:
+                    body.dstore(2 * operand);
+                    break;
+                case Opcode.ADD:
+                    body.dadd();
+                    break;
+                case Opcode.SUB:
+                    body.dsub();
+                    break;
+                case Opcode.MUL:
+                    body.dmul();
+                    break;
+                case Opcode.DIV:
+                    body.ddiv();
+                    break;
+                case Opcode.IDIV:
+                case Opcode.MOD: {
+                    // Both operands truncated to long: keep the divisor aside while converting the dividend.
+                    body.d2l();
+                    body.lstore(scratch);
+                    body.d2l();
+                    body.lload(scratch);
+                    if (code[pc] == Opcode.IDIV) {
+                        body.ldiv();
+                    } else {
+                        body.lrem();
+                    }
+                    body.l2d();
+                    break;
+                }
+                case Opcode.JUMP:
+                    body.goto_(labels[operand - start]);
+                    break;
+                case Opcode.JUMP_IF_EQ:
+                    body.dcmpl();
+                    body.ifeq(labels[operand - start]);
+                    break;
+                case Opcode.JUMP_IF_NE:
+                    body.dcmpl();
+                    body.ifne(labels[operand - start]);
+                    break;
+                case Opcode.JUMP_IF_LT:
+                    body.dcmpg();
+                    body.iflt(labels[operand - start]);
+                    break;
+                case Opcode.JUMP_IF_LE:
+                    body.dcmpg();
+                    body.ifle(labels[operand - start]);
+                    break;
+                case Opcode.JUMP_IF_GT:
+                    body.dcmpl();
+                    body.ifgt(labels[operand - start]);
+                    break;
+                case Opcode.JUMP_IF_GE:
+                    body.dcmpl();
+                    body.ifge(labels[operand - start]);
+                    break;
+                case Opcode.CALL:
+                    body.invokestatic(CD_PROGRAM, method(operand), FUNCTION_TYPE);
+                    // Back from the function's lines.
+                    setLine(body, line);
+                    break;
+                case Opcode.RETURN:
+                    body.return_();
+                    break;
+                case Opcode.READ_GLOBAL:
+                    read(body);
+                    body.putstatic(CD_PROGRAM, global(operand), ConstantDescs.CD_double);
+                    break;
+                case Opcode.READ_LOCAL:
+                    read(body);
+                    body.dstore(2 * operand);
+                    break;
+                case Opcode.WRITE: {
+                    // io goes under the value: keep the value aside while loading it.
+                    body.dstore(scratch);
+                    body.getstatic(CD_PROGRAM, "io", CD_IO);
+                    body.dload(scratch);
+                    body.invokeinterface(CD_IO, "write", WRITE_TYPE);
+                    break;
+                }
+                case Opcode.HALT:
+                    if (main) {
+                        body.return_();
+                    } else {
+                        body.getstatic(CD_COMPILER, "HALT", CD_HALT);
+                        body.athrow();
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Bad opcode " + code[pc] + " at " + pc);
+            }
+        }
+    }
+
+    private static void setLine(CodeBuilder body, int line) {
+        if (line == 0) return;
+        body.loadConstant(line);
+        body.putstatic(CD_PROGRAM, LINE, ConstantDescs.CD_int);
+    }
+
+    private void read(CodeBuilder body) {
+        body.getstatic(CD_PROGRAM, "io", CD_IO);
+        body.invokeinterface(CD_IO, "read", READ_TYPE);
+    }
+
+    private static String global(int slot) {
+        return "g" + slot;
+    }
+
+    private static String method(int index) {
+        return "f" + index;
+    }
+}
@@ -0,0 +1,477 @@
+package com.example.comp439_mohammad;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Language Server Protocol over stdin and stdout, so editors show errors, highlighting
+ * and an outline without the JavaFX window. Every open file is an
+ * {@link IncrementalDocument}: an edit rescans and reparses only the lines and unit it
+ * touched, and diagnostics are published once edits have paused for the debounce delay.
+ *
+ * <p>Supported: {@code initialize}, {@code shutdown}, {@code exit}, {@code didOpen},
+ * {@code didChange} (full or incremental), {@code didClose},
+ * {@code textDocument/semanticTokens/full} for reserved words, operators, numbers and
+ * names, and {@code textDocument/documentSymbol} for functions, variables and constants.
+ *
+ * <p>One thread reads and decodes messages; another handles them in order, so documents
+ * are only ever touched by one thread.
+ */
+final class LanguageServer {
+
+    static final int DEFAULT_DEBOUNCE_MILLIS = 30;
+
+    private static final String[] TOKEN_TYPES = {"keyword", "operator", "number", "variable"};
+    private static final int KEYWORD = 0;
+    private static final int OPERATOR = 1;
+    private static final int NUMBER = 2;
+    private static final int VARIABLE = 3;
+
+    // LSP SymbolKind values.
+    private static final int SYMBOL_FUNCTION = 12;
+    private static final int SYMBOL_VARIABLE = 13;
+    private static final int SYMBOL_CONSTANT = 14;
+
+    private static final int METHOD_NOT_FOUND = -32601;
+    private static final int INTERNAL_ERROR = -32603;
+
+    // Put in the inbox when the input ends.
+    private static final Object END = new Object();
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final long debounceNanos;
+    private final BlockingQueue<Object> inbox = new LinkedBlockingQueue<>();
+    private final Map<String, IncrementalDocument> documents = new HashMap<>();
+    // Documents edited since their diagnostics were last published.
+    private final Set<String> stale = new LinkedHashSet<>();
+    private long publishAt;
+    private boolean shutdown;
+
+    LanguageServer(InputStream in, OutputStream out, int debounceMillis) {
+        this.in = new BufferedInputStream(in, 1 << 16);
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+    }
+
+    /**
+     * Serves until {@code exit} or the end of input; returns the process exit status.
+     */
+    int run() throws IOException {
+        Thread reader = new Thread(this::read, "lsp-reader");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            while (true) {
+                Object message;
+                if (stale.isEmpty()) {
+                    message = inbox.take();
+                } else {
+                    long wait = publishAt - System.nanoTime();
+                    message = wait > 0 ? inbox.poll(wait, TimeUnit.NANOSECONDS) : null;
+                }
+                if (message == null) {
+                    for (String uri : stale) {
+                        publish(uri);
+                    }
+                    out.flush();
+                    // Typing has paused: a good time for the full reparse that compaction costs.
+                    for (String uri : stale) {
+                        IncrementalDocument document = documents.get(uri);
+                        if (document != null && document.hasGarbage()) document.compact();
+                    }
+                    stale.clear();
+                    continue;
+                }
+                if (message == END) {
+                    return shutdown ? 0 : 1;
+                }
+                @SuppressWarnings("unchecked")
+                Map<String, Object> request = (Map<String, Object>) message;
+                if ("exit".equals(request.get("method"))) {
+                    return shutdown ? 0 : 1;
+                }
+                handle(request);
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    private void read() {
+        try {
+            String body;
+            while ((body = readMessage()) != null) {
+                try {
+                    inbox.add(Json.parse(body));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("lsp: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("lsp: " + e.getMessage());
+        }
+        inbox.add(END);
+    }
+
+    /**
+     * The body of the next message, or null at the end of input.
+     */
+    private String readMessage() throws IOException {
+        int length = -1;
+        ByteArrayOutputStream header = new ByteArrayOutputStream(64);
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                return null;
+            }
+            if (b != '\n') {
+                if (b != '\r') header.write(b);
+                continue;
+            }
+            String line = header.toString(StandardCharsets.US_ASCII);
+            header.reset();
+            if (line.isEmpty()) {
+                if (length >= 0) break;
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                length = Integer.parseInt(line.substring(colon + 1).trim());
+            }
+        }
+        byte[] body = in.readNBytes(length);
+        if (body.length < length) {
+            return null;
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private void handle(Map<String, Object> message) throws IOException {
+        String method = (String) message.get("method");
+        Object id = message.get("id");
+        Map<String, Object> params = object(message.get("params"));
+        if (method == null) {
+            // A response to a request of ours; we send none.
+            return;
+        }
+        try {
+            switch (method) {
+                case "initialize":
+                    respond(id, capabilities());
+                    break;
+                case "shutdown":
+                    shutdown = true;
+                    respond(id, null);
+                    break;
+                case "textDocument/didOpen": {
+                    Map<String, Object> document = object(params.get("textDocument"));
+                    String uri = (String) document.get("uri");
+                    documents.put(uri, new IncrementalDocument((String) document.get("text")));
+                    stale.remove(uri);
+                    publish(uri);
+                    break;
+                }
+                case "textDocument/didChange": {
+                    String uri = uri(params);
+                    IncrementalDocument document = documents.get(uri);
+                    if (document == null) break;
+                    for (Object change : (List<?>) params.get("contentChanges")) {
+                        apply(document, object(change));
+                    }
+                    stale.add(uri);
+                    publishAt = System.nanoTime() + debounceNanos;
+                    break;
+                }
+                case "textDocument/didClose": {
+                    String uri = uri(params);
+                    documents.remove(uri);
+                    stale.remove(uri);
+                    notify("textDocument/publishDiagnostics", Map.of("uri", uri, "diagnostics", List.of()));
+                    break;
+                }
+                case "textDocument/semanticTokens/full": {
+                    IncrementalDocument document = documents.get(uri(params));
+                    respond(id, document == null ? null : Map.of("data", semanticTokens(document)));
+                    break;
+                }
+                case "textDocument/documentSymbol": {
+                    IncrementalDocument document = documents.get(uri(params));
+                    respond(id, document == null ? null : symbols(document));
+                    break;
+                }
+                default:
+                    if (id != null) {
+                        error(id, METHOD_NOT_FOUND, "Unsupported method " + method);
+                    }
+            }
+        } catch (RuntimeException e) {
+            if (id != null) {
+                error(id, INTERNAL_ERROR, String.valueOf(e));
+            } else {
+                System.err.println("lsp: " + method + ": " + e);
+            }
+        }
+    }
+
+    private static Map<String, Object> capabilities() {
+        Map<String, Object> legend = new LinkedHashMap<>();
+        legend.put("tokenTypes", List.of(TOKEN_TYPES));
+        legend.put("tokenModifiers", List.of());
+        Map<String, Object> semanticTokens = new LinkedHashMap<>();
+        semanticTokens.put("legend", legend);
+        semanticTokens.put("full", true);
+
+        Map<String, Object> sync = new LinkedHashMap<>();
+        sync.put("openClose", true);
+        sync.put("change", 2); // incremental
+
+        Map<String, Object> capabilities = new LinkedHashMap<>();
+        capabilities.put("textDocumentSync", sync);
+        capabilities.put("semanticTokensProvider", semanticTokens);
+        capabilities.put("documentSymbolProvider", true);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("capabilities", capabilities);
+        result.put("serverInfo", Map.of("name", "comp439"));
+        return result;
+    }
+
+    /**
+     * Applies one {@code contentChanges} entry. Positions count UTF-16 units, as Java strings do.
+     */
+    private static void apply(IncrementalDocument document, Map<String, Object> change) {
+        String text = (String) change.get("text");
+        Map<String, Object> range = object(change.get("range"));
+        if (range == null) {
+            document.setText(text);
+            return;
+        }
+        Map<String, Object> start = object(range.get("start"));
+        Map<String, Object> end = object(range.get("end"));
+        int startLine = integer(start.get("line"));
+        int endLine = integer(end.get("line"));
+        int count = document.lineCount();
+        // The document drops the empty line after a final line break; editors count it.
+        String first = startLine < count ? document.text(startLine) : "";
+        String last = endLine < count ? document.text(endLine) : "";
+        String edited = first.substring(0, Math.min(integer(start.get("character")), first.length()))
+                + text + last.substring(Math.min(integer(end.get("character")), last.length()));
+        document.replaceLines(Math.min(startLine, count), Math.min(endLine + 1, count), lines(edited));
+    }
+
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int from = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                lines.add(text.substring(from, i));
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') i++;
+                from = i + 1;
+            }
+        }
+        lines.add(text.substring(from));
+        return lines;
+    }
+
+    private void publish(String uri) throws IOException {
+        IncrementalDocument document = documents.get(uri);
+        if (document == null) return;
+        List<Diagnostic> found = document.diagnostics();
+        if (found.isEmpty() && document.program() != Ast.NIL) {
+            found = SemanticAnalyzer.analyze(document);
+        }
+        List<Object> diagnostics = new ArrayList<>(found.size());
+        for (Diagnostic diagnostic : found) {
+            int line = Math.max(0, diagnostic.line - 1);
+            String text = line < document.lineCount() ? document.text(line) : "";
+            int from;
+            int to;
+            if (diagnostic.column > 0) {
+                from = Math.min(diagnostic.column - 1, text.length());
+                int length = diagnostic.found != null ? Math.max(1, diagnostic.found.length()) : 1;
+                to = Math.min(text.length(), from + length);
+            } else {
+                from = 0;
+                while (from < text.length() && Character.isWhitespace(text.charAt(from))) from++;
+                to = text.length();
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("range", range(line, from, line, to));
+            entry.put("severity", 1); // error
+            entry.put("source", "comp439");
+            entry.put("message", diagnostic.message);
+            diagnostics.add(entry);
+        }
+        notify("textDocument/publishDiagnostics", Map.of("uri", uri, "diagnostics", diagnostics));
+    }
+
+    /**
+     * Tokens as LSP encodes them: five numbers each, positions relative to the token before.
+     */
+    private static int[] semanticTokens(IncrementalDocument document) {
+        int[] data = new int[5 * 256];
+        int size = 0;
+        int previousLine = 0;
+        int previousColumn = 0;
+        for (int line = 0; line < document.lineCount(); line++) {
+            for (ScannerLexer.Token token : document.tokens(line)) {
+                int type;
+                if (ScannerLexer.RESERVED_WORDS.contains(token.value)) {
+                    type = KEYWORD;
+                } else if (ScannerLexer.OPERATORS.contains(token.value)) {
+                    type = OPERATOR;
+                } else if (token.kind == TokenKind.NUMBER) {
+                    type = NUMBER;
+                } else if (token.kind == TokenKind.IDENTIFIER) {
+                    type = VARIABLE;
+                } else {
+                    continue;
+                }
+                if (size == data.length) {
+                    data = Arrays.copyOf(data, size * 2);
+                }
+                int column = token.column - 1;
+                data[size] = line - previousLine;
+                data[size + 1] = line == previousLine ? column - previousColumn : column;
+                data[size + 2] = token.value.length();
+                data[size + 3] = type;
+                data[size + 4] = 0;
+                size += 5;
+                previousLine = line;
+                previousColumn = column;
+            }
+        }
+        return Arrays.copyOf(data, size);
+    }
+
+    /**
+     * Global constants and variables, then each function with its own as children.
+     */
+    private static List<Object> symbols(IncrementalDocument document) {
+        List<Object> symbols = new ArrayList<>();
+        int program = document.program();
+        if (program == Ast.NIL) return symbols;
+        Ast ast = document.ast();
+        declarations(document, ast.a(program), symbols);
+        for (int function = ast.b(program); function != Ast.NIL; function = ast.next(function)) {
+            int line = document.line(function) - 1;
+            // A function runs up to the next one, or up to the main block.
+            int next = ast.next(function) != Ast.NIL ? ast.next(function) : ast.c(program);
+            int last = next != Ast.NIL ? Math.max(line, document.line(next) - 2) : line;
+            List<Object> children = new ArrayList<>();
+            declarations(document, ast.b(function), children);
+            Map<String, Object> symbol = symbol(document, ast.name(function), SYMBOL_FUNCTION, line);
+            symbol.put("range", range(line, 0, last, last < document.lineCount() ? document.text(last).length() : 0));
+            symbol.put("children", children);
+            symbols.add(symbol);
+        }
+        return symbols;
+    }
+
+    private static void declarations(IncrementalDocument document, int first, List<Object> symbols) {
+        Ast ast = document.ast();
+        for (int node = first; node != Ast.NIL; node = ast.next(node)) {
+            if (ast.kind(node) == Ast.CONST_DECL) {
+                symbols.add(symbol(document, ast.name(node), SYMBOL_CONSTANT, document.line(node) - 1));
+            } else if (ast.kind(node) == Ast.VAR_DECL) {
+                for (int name = ast.b(node); name != Ast.NIL; name = ast.next(name)) {
+                    symbols.add(symbol(document, ast.name(name), SYMBOL_VARIABLE, document.line(name) - 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * A symbol spanning its line, with the name token on that line selected.
+     */
+    private static Map<String, Object> symbol(IncrementalDocument document, String name, int kind, int line) {
+        int length = line < document.lineCount() ? document.text(line).length() : 0;
+        int from = 0;
+        int to = length;
+        if (line < document.lineCount()) {
+            for (ScannerLexer.Token token : document.tokens(line)) {
+                if (token.kind == TokenKind.IDENTIFIER && token.value.equals(name)) {
+                    from = token.column - 1;
+                    to = from + name.length();
+                    break;
+                }
+            }
+        }
+        Map<String, Object> symbol = new LinkedHashMap<>();
+        symbol.put("name", name);
+        symbol.put("kind", kind);
+        symbol.put("range", range(line, 0, line, length));
+        symbol.put("selectionRange", range(line, from, line, to));
+        return symbol;
+    }
+
+    private static Map<String, Object> range(int startLine, int startCharacter, int endLine, int endCharacter) {
+        Map<String, Object> range = new LinkedHashMap<>();
+        range.put("start", Map.of("line", startLine, "character", startCharacter));
+        range.put("end", Map.of("line", endLine, "character", endCharacter));
+        return range;
+    }
+
+    private void respond(Object id, Object result) throws IOException {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        response.put("result", result);
+        send(response);
+    }
+
+    private void error(Object id, int code, String message) throws IOException {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        response.put("error", Map.of("code", code, "message", message));
+        send(response);
+    }
+
+    private void notify(String method, Object params) throws IOException {
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", method);
+        notification.put("params", params);
+        send(notification);
+    }
+
+    private void send(Object message) throws IOException {
+        byte[] body = Json.write(message).getBytes(StandardCharsets.UTF_8);
+        out.write(("Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+    }
+
+    private static String uri(Map<String, Object> params) {
+        return (String) object(params.get("textDocument")).get("uri");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private static int integer(Object value) {
+        return ((Number) value).intValue();
+    }
+}
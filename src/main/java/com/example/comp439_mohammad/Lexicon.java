@@ -0,0 +1,113 @@
+package com.example.comp439_mohammad;
+
+/**
+ * Allocation-free lookup of the language's fixed vocabulary. A word is identified
+ * by a switch on its length and first character followed by at most one region
+ * compare, so the scanner (or any tooling) can classify a range of a buffer without
+ * cutting a String out of it.
+ */
+final class Lexicon {
+
+    private Lexicon() {
+    }
+
+    static int lookup(CharSequence text) {
+        return lookup(text, 0, text.length());
+    }
+
+    /**
+     * Returns the {@link Symbol} spelled by {@code src[start, end)}, or {@link Symbol#NONE}.
+     */
+    static int lookup(CharSequence src, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return Symbol.NONE;
+        }
+        char first = src.charAt(start);
+        switch (length) {
+            case 1:
+                switch (first) {
+                    case '+': return Symbol.PLUS;
+                    case '-': return Symbol.MINUS;
+                    case '*': return Symbol.STAR;
+                    case '/': return Symbol.SLASH;
+                    case '=': return Symbol.EQ;
+                    case '>': return Symbol.GT;
+                    case '<': return Symbol.LT;
+                    case '(': return Symbol.LPAREN;
+                    case ')': return Symbol.RPAREN;
+                    case '{': return Symbol.LBRACE;
+                    case '}': return Symbol.RBRACE;
+                    case ';': return Symbol.SEMICOLON;
+                    case ',': return Symbol.COMMA;
+                    default: return Symbol.NONE;
+                }
+            case 2: {
+                char second = src.charAt(start + 1);
+                switch (first) {
+                    case 'i': return second == 'f' ? Symbol.IF : Symbol.NONE;
+                    case ':': return second == '=' ? Symbol.ASSIGN : Symbol.NONE;
+                    case '=':
+                        switch (second) {
+                            case '>': return Symbol.GE;
+                            case '<': return Symbol.LE;
+                            case '!': return Symbol.NE;
+                            default: return Symbol.NONE;
+                        }
+                    default: return Symbol.NONE;
+                }
+            }
+            case 3:
+                switch (first) {
+                    case 'v': return match(src, start, Symbol.VAR);
+                    case 'c': return match(src, start, Symbol.CIN);
+                    case 'm': return match(src, start, Symbol.MOD);
+                    case 'd': return match(src, start, Symbol.DIV);
+                    default: return Symbol.NONE;
+                }
+            case 4:
+                switch (first) {
+                    case 'n': return match(src, start, Symbol.NEWB);
+                    case 'e':
+                        switch (src.charAt(start + 1)) {
+                            case 'n': return match(src, start, Symbol.ENDB);
+                            case 'l': return match(src, start, Symbol.ELSE);
+                            case 'x': return match(src, start, Symbol.EXIT);
+                            default: return Symbol.NONE;
+                        }
+                    case 'c':
+                        switch (src.charAt(start + 1)) {
+                            case 'a': return match(src, start, Symbol.CALL);
+                            case 'o': return match(src, start, Symbol.COUT);
+                            default: return Symbol.NONE;
+                        }
+                    default: return Symbol.NONE;
+                }
+            case 5:
+                switch (first) {
+                    case 'c': return match(src, start, Symbol.CONST);
+                    case 'w': return match(src, start, Symbol.WHILE);
+                    case 'u': return match(src, start, Symbol.UNTIL);
+                    default: return Symbol.NONE;
+                }
+            case 6:
+                return first == 'r' ? match(src, start, Symbol.REPEAT) : Symbol.NONE;
+            case 8:
+                switch (first) {
+                    case 'f': return match(src, start, Symbol.FUNCTION);
+                    case '#': return match(src, start, Symbol.INCLUDE);
+                    default: return Symbol.NONE;
+                }
+            default:
+                return Symbol.NONE;
+        }
+    }
+
+    private static int match(CharSequence src, int start, int symbol) {
+        String text = Symbol.text(symbol);
+        for (int i = 1; i < text.length(); i++) {
+            if (src.charAt(start + i) != text.charAt(i)) return Symbol.NONE;
+        }
+        return symbol;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.comp439_mohammad;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * {@link TokenStream} that scans its {@link LineReader} on demand, one line at a time,
+ * so only the current line's tokens are held in memory while the parser runs.
+ * The reader is closed once the last line has been scanned.
+ */
+final class LexingTokenStream implements TokenStream, Closeable {
+
+    private final LineReader reader;
+    private final ArrayDeque<ScannerLexer.Token> pending = new ArrayDeque<>();
+    private boolean exhausted;
+    private int position;
+    private CompilerMetrics metrics;
+
+    LexingTokenStream(LineReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Records every line scanned as a {@link CompilerMetrics#SCAN} run in {@code metrics}.
+     */
+    void setMetrics(CompilerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ScannerLexer.Token peek(int offset) throws ScannerLexer.SyntaxError {
+        if (offset >= LOOKAHEAD) {
+            throw new IllegalArgumentException("Lookahead of " + offset + " exceeds " + LOOKAHEAD);
+        }
+        while (pending.size() <= offset) {
+            if (!fill()) break;
+        }
+        if (offset == 0) {
+            return pending.peekFirst();
+        }
+        int index = 0;
+        for (ScannerLexer.Token token : pending) {
+            if (index++ == offset) return token;
+        }
+        return null;
+    }
+
+    @Override
+    public ScannerLexer.Token advance() throws ScannerLexer.SyntaxError {
+        if (peek(0) == null) {
+            return null;
+        }
+        position++;
+        return pending.pollFirst();
+    }
+
+    @Override
+    public int position() {
+        return position;
+    }
+
+    private boolean fill() throws ScannerLexer.SyntaxError {
+        if (exhausted) {
+            return false;
+        }
+        try {
+            if (!reader.nextLine()) {
+                exhausted = true;
+                reader.close();
+                return false;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (metrics == null) {
+            DfaScanner.scanLine(reader.text(), reader.lineStart(), reader.lineEnd(), reader.lineNumber(), pending::addLast);
+            return true;
+        }
+        long start = System.nanoTime();
+        long allocated = CompilerMetrics.allocatedBytes();
+        int before = pending.size();
+        DfaScanner.scanLine(reader.text(), reader.lineStart(), reader.lineEnd(), reader.lineNumber(), pending::addLast);
+        metrics.record(CompilerMetrics.SCAN, System.nanoTime() - start, pending.size() - before, 1,
+                CompilerMetrics.allocatedBytes() - allocated);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        exhausted = true;
+        reader.close();
+    }
+}
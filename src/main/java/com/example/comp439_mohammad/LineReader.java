@@ -0,0 +1,21 @@
+package com.example.comp439_mohammad;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Line-at-a-time view over source text. The current line is the range
+ * {@code [lineStart(), lineEnd())} of {@link #text()}; line numbers start at 1.
+ */
+interface LineReader extends Closeable {
+
+    boolean nextLine() throws IOException;
+
+    CharSequence text();
+
+    int lineStart();
+
+    int lineEnd();
+
+    int lineNumber();
+}
@@ -0,0 +1,32 @@
+package com.example.comp439_mohammad;
+
+import java.util.List;
+
+/**
+ * {@link TokenStream} over tokens that have already been scanned into a list.
+ */
+final class ListTokenStream implements TokenStream {
+
+    private final List<ScannerLexer.Token> tokens;
+    private int current;
+
+    ListTokenStream(List<ScannerLexer.Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    public ScannerLexer.Token peek(int offset) {
+        int index = current + offset;
+        return index < tokens.size() ? tokens.get(index) : null;
+    }
+
+    @Override
+    public ScannerLexer.Token advance() {
+        return current < tokens.size() ? tokens.get(current++) : null;
+    }
+
+    @Override
+    public int position() {
+        return current;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.comp439_mohammad;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a source file line by line straight out of a memory-mapped region.
+ * Lines are exposed as {@code [lineStart(), lineEnd())} ranges over {@link #text()},
+ * so no per-line String is ever built. Line breaks follow
+ * {@link java.io.BufferedReader#readLine()}: {@code \n}, {@code \r} or {@code \r\n}.
+ * Files larger than one window are mapped window by window, always restarting
+ * a window at the beginning of a line.
+ */
+final class MappedLineReader implements LineReader {
+
+    static final int DEFAULT_WINDOW = 256 << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int window;
+
+    private long windowPosition;
+    private int windowLength;
+    private ByteText text = new ByteText(ByteBuffer.allocate(0));
+
+    private int cursor;
+    private int lineStart;
+    private int lineEnd;
+    private int lineNumber;
+
+    MappedLineReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW);
+    }
+
+    MappedLineReader(Path path, int window) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.window = window;
+    }
+
+    @Override
+    public boolean nextLine() throws IOException {
+        while (true) {
+            if (cursor < windowLength) {
+                boolean lastWindow = windowPosition + windowLength == size;
+                int eol = cursor;
+                while (eol < windowLength) {
+                    byte b = text.byteAt(eol);
+                    if (b == '\n' || b == '\r') break;
+                    eol++;
+                }
+                boolean complete = eol < windowLength
+                        && !(text.byteAt(eol) == '\r' && eol + 1 == windowLength && !lastWindow);
+                if (complete || lastWindow) {
+                    lineStart = cursor;
+                    lineEnd = eol;
+                    lineNumber++;
+                    cursor = eol;
+                    if (cursor < windowLength) {
+                        cursor += text.byteAt(cursor) == '\r' && cursor + 1 < windowLength
+                                && text.byteAt(cursor + 1) == '\n' ? 2 : 1;
+                    }
+                    return true;
+                }
+            }
+            if (windowPosition + cursor >= size) {
+                return false;
+            }
+            remap(windowPosition + cursor, cursor == 0 && windowLength > 0);
+        }
+    }
+
+    private void remap(long position, boolean grow) throws IOException {
+        long length = Math.min(size - position, grow ? Math.min((long) windowLength * 2, Integer.MAX_VALUE) : window);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        windowPosition = position;
+        windowLength = (int) length;
+        text = new ByteText(buffer);
+        cursor = 0;
+    }
+
+    @Override
+    public CharSequence text() {
+        return text;
+    }
+
+    @Override
+    public int lineStart() {
+        return lineStart;
+    }
+
+    @Override
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    @Override
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    long bytesRead() {
+        return windowPosition + cursor;
+    }
+
+    long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Latin-1 view of the mapped bytes. Every character the scanner cares about is
+     * ASCII and UTF-8 never uses bytes below 0x80 inside a multi-byte sequence, so
+     * scanning the raw bytes is safe; slices are decoded as UTF-8 when materialised.
+     */
+    static final class ByteText implements CharSequence {
+        private final ByteBuffer bytes;
+
+        ByteText(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        byte byteAt(int index) {
+            return bytes.get(index);
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] slice = new byte[end - start];
+            bytes.get(start, slice);
+            return new String(slice, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
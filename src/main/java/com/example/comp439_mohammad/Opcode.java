@@ -0,0 +1,128 @@
+package com.example.comp439_mohammad;
+
+/**
+ * Instruction set of the {@link VirtualMachine}. Each instruction is one int opcode
+ * followed by {@link #operands(int)} int operands. Values are doubles on an operand stack.
+ */
+final class Opcode {
+
+    /** Pushes {@code constants[k]}. */
+    static final int PUSH = 0;
+    static final int LOAD_GLOBAL = 1;
+    static final int STORE_GLOBAL = 2;
+    static final int LOAD_LOCAL = 3;
+    static final int STORE_LOCAL = 4;
+
+    static final int ADD = 5;
+    static final int SUB = 6;
+    static final int MUL = 7;
+    /** Real division, {@code /}. */
+    static final int DIV = 8;
+    /** Truncating integer division, {@code div}. */
+    static final int IDIV = 9;
+    static final int MOD = 10;
+
+    static final int JUMP = 11;
+    /** Pops b, then a; jumps if {@code a = b}. Likewise for the other comparisons. */
+    static final int JUMP_IF_EQ = 12;
+    static final int JUMP_IF_NE = 13;
+    static final int JUMP_IF_LT = 14;
+    static final int JUMP_IF_LE = 15;
+    static final int JUMP_IF_GT = 16;
+    static final int JUMP_IF_GE = 17;
+
+    /** Calls function {@code f}. */
+    static final int CALL = 18;
+    static final int RETURN = 19;
+    static final int READ_GLOBAL = 20;
+    static final int READ_LOCAL = 21;
+    static final int WRITE = 22;
+    static final int HALT = 23;
+
+    static final int COUNT = 24;
+
+    private static final String[] NAMES = {
+            "push", "load_global", "store_global", "load_local", "store_local",
+            "add", "sub", "mul", "div", "idiv", "mod",
+            "jump", "jump_if_eq", "jump_if_ne", "jump_if_lt", "jump_if_le", "jump_if_gt", "jump_if_ge",
+            "call", "return", "read_global", "read_local", "write", "halt"
+    };
+
+    private Opcode() {
+    }
+
+    static String name(int opcode) {
+        return NAMES[opcode];
+    }
+
+    static int operands(int opcode) {
+        switch (opcode) {
+            case PUSH:
+            case LOAD_GLOBAL:
+            case STORE_GLOBAL:
+            case LOAD_LOCAL:
+            case STORE_LOCAL:
+            case JUMP:
+            case JUMP_IF_EQ:
+            case JUMP_IF_NE:
+            case JUMP_IF_LT:
+            case JUMP_IF_LE:
+            case JUMP_IF_GT:
+            case JUMP_IF_GE:
+            case CALL:
+            case READ_GLOBAL:
+            case READ_LOCAL:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    static boolean isConditionalJump(int opcode) {
+        return opcode >= JUMP_IF_EQ && opcode <= JUMP_IF_GE;
+    }
+
+    /**
+     * The conditional jump taken exactly when {@code opcode} is not.
+     */
+    static int negate(int opcode) {
+        switch (opcode) {
+            case JUMP_IF_EQ: return JUMP_IF_NE;
+            case JUMP_IF_NE: return JUMP_IF_EQ;
+            case JUMP_IF_LT: return JUMP_IF_GE;
+            case JUMP_IF_LE: return JUMP_IF_GT;
+            case JUMP_IF_GT: return JUMP_IF_LE;
+            default: return JUMP_IF_LT;
+        }
+    }
+
+    /**
+     * Conditional jump for a relational operator {@link Symbol}.
+     */
+    static int jumpIf(int relation) {
+        switch (relation) {
+            case Symbol.EQ: return JUMP_IF_EQ;
+            case Symbol.NE: return JUMP_IF_NE;
+            case Symbol.LT: return JUMP_IF_LT;
+            case Symbol.LE: return JUMP_IF_LE;
+            case Symbol.GT: return JUMP_IF_GT;
+            case Symbol.GE: return JUMP_IF_GE;
+            default: throw new IllegalArgumentException("Not a relation: " + Symbol.text(relation));
+        }
+    }
+
+    /**
+     * Arithmetic instruction for an operator {@link Symbol}.
+     */
+    static int arithmetic(int operator) {
+        switch (operator) {
+            case Symbol.PLUS: return ADD;
+            case Symbol.MINUS: return SUB;
+            case Symbol.STAR: return MUL;
+            case Symbol.SLASH: return DIV;
+            case Symbol.DIV: return IDIV;
+            case Symbol.MOD: return MOD;
+            default: throw new IllegalArgumentException("Not an operator: " + Symbol.text(operator));
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.comp439_mohammad;
+
+import java.util.Arrays;
+
+/**
+ * Rewrites a checked {@link Ast} in place so that the code generated from it does less
+ * work. One bottom-up pass does all of it, since children are finished before their parent:
+ * <ul>
+ * <li>constant propagation: a name bound to a {@code const} becomes its literal;</li>
+ * <li>constant folding of {@code + - * / div mod} on two literals;</li>
+ * <li>algebraic simplification: {@code x - 0}, {@code x * 1}, {@code 1 * x} and
+ *     {@code x / 1} become {@code x};</li>
+ * <li>dead branches: an {@code if} with a constant condition becomes the branch taken,
+ *     a {@code while} that never runs and empty blocks disappear, and a {@code repeat}
+ *     whose condition always holds becomes its body.</li>
+ * </ul>
+ * Results match what the {@link VirtualMachine} computes, so nothing is folded that would
+ * fail at run time ({@code div} or {@code mod} by 0) or differs for some value of
+ * {@code x} ({@code x * 0} is NaN for an infinite {@code x}, and {@code x + 0} is
+ * {@code 0} rather than {@code -0} for a negative zero).
+ */
+final class Optimizer {
+
+    private final Ast ast;
+    private final SymbolTable symbols;
+
+    private int propagated;
+    private int folded;
+    private int simplified;
+    private int eliminated;
+
+    // Entries are node << 1, plus 1 once the node's children are done.
+    private int[] stack = new int[64];
+    private int top;
+
+    Optimizer(Ast ast) {
+        this.ast = ast;
+        this.symbols = new SymbolTable(ast.stringCount());
+    }
+
+    static Optimizer optimize(Ast ast) {
+        Optimizer optimizer = new Optimizer(ast);
+        optimizer.run();
+        return optimizer;
+    }
+
+    void run() {
+        int program = ast.root();
+        if (program == Ast.NIL) return;
+        symbols.enterScope();
+        declarations(ast.a(program));
+        for (int function = ast.b(program); function != Ast.NIL; function = ast.next(function)) {
+            symbols.declare(ast.a(function), SymbolTable.FUNCTION, function);
+            symbols.enterScope();
+            declarations(ast.b(function));
+            optimize(ast.c(function));
+            symbols.exitScope();
+        }
+        optimize(ast.c(program));
+        symbols.exitScope();
+    }
+
+    /**
+     * Names replaced by the value of a constant.
+     */
+    int propagated() {
+        return propagated;
+    }
+
+    int folded() {
+        return folded;
+    }
+
+    int simplified() {
+        return simplified;
+    }
+
+    /**
+     * Statements and branches removed.
+     */
+    int eliminated() {
+        return eliminated;
+    }
+
+    @Override
+    public String toString() {
+        return propagated + " constants propagated, " + folded + " operations folded, "
+                + simplified + " simplified, " + eliminated + " statements eliminated";
+    }
+
+    private void declarations(int first) {
+        for (int node = first; node != Ast.NIL; node = ast.next(node)) {
+            if (ast.kind(node) == Ast.CONST_DECL) {
+                symbols.declare(ast.a(node), SymbolTable.CONSTANT, node);
+            } else if (ast.kind(node) == Ast.VAR_DECL) {
+                // Variables matter too: a local shadows a global constant.
+                for (int name = ast.b(node); name != Ast.NIL; name = ast.next(name)) {
+                    symbols.declare(ast.a(name), SymbolTable.VARIABLE, name);
+                }
+            }
+        }
+    }
+
+    private void optimize(int root) {
+        push(root << 1);
+        while (top > 0) {
+            int entry = stack[--top];
+            int node = entry >> 1;
+            if ((entry & 1) == 0) {
+                push(entry | 1);
+                children(node);
+            } else {
+                rewrite(node);
+            }
+        }
+    }
+
+    private void children(int node) {
+        switch (ast.kind(node)) {
+            case Ast.BLOCK:
+                list(ast.a(node));
+                break;
+            case Ast.IF:
+                push(ast.a(node) << 1);
+                push(ast.b(node) << 1);
+                if (ast.c(node) != Ast.NIL) {
+                    push(ast.c(node) << 1);
+                }
+                break;
+            case Ast.WHILE:
+                push(ast.a(node) << 1);
+                push(ast.b(node) << 1);
+                break;
+            case Ast.REPEAT:
+                list(ast.a(node));
+                push(ast.b(node) << 1);
+                break;
+            case Ast.ASSIGN:
+                push(ast.b(node) << 1);
+                break;
+            case Ast.COUT:
+                push(ast.a(node) << 1);
+                break;
+            case Ast.BINARY_OP:
+            case Ast.CONDITION:
+                push(ast.b(node) << 1);
+                push(ast.c(node) << 1);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void list(int first) {
+        for (int node = first; node != Ast.NIL; node = ast.next(node)) {
+            push(node << 1);
+        }
+    }
+
+    private void rewrite(int node) {
+        switch (ast.kind(node)) {
+            case Ast.NAME: {
+                int binding = symbols.lookup(ast.a(node));
+                if (binding != SymbolTable.NOT_FOUND && symbols.kind(binding) == SymbolTable.CONSTANT) {
+                    ast.set(node, Ast.NUMBER, ast.c(symbols.node(binding)), Ast.NIL, Ast.NIL);
+                    propagated++;
+                }
+                break;
+            }
+            case Ast.BINARY_OP:
+                binary(node);
+                break;
+            case Ast.IF: {
+                int condition = ast.a(node);
+                if (!isConstant(condition)) break;
+                int taken = holds(condition) ? ast.b(node) : ast.c(node);
+                if (taken == Ast.NIL) {
+                    remove(node);
+                } else {
+                    copy(node, taken);
+                    eliminated++;
+                }
+                break;
+            }
+            case Ast.WHILE:
+                if (isConstant(ast.a(node)) && !holds(ast.a(node))) {
+                    remove(node);
+                }
+                break;
+            case Ast.REPEAT:
+                ast.setA(node, prune(ast.a(node)));
+                if (isConstant(ast.b(node)) && holds(ast.b(node))) {
+                    // Runs exactly once.
+                    ast.set(node, Ast.BLOCK, ast.a(node), Ast.NIL, Ast.NIL);
+                    eliminated++;
+                } else if (ast.a(node) == Ast.NIL) {
+                    // The compiler needs a statement to jump back to.
+                    ast.setA(node, ast.add(Ast.BLOCK, Ast.NIL, Ast.NIL, Ast.NIL, ast.line(node)));
+                }
+                break;
+            case Ast.BLOCK:
+                ast.setA(node, prune(ast.a(node)));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void binary(int node) {
+        int operator = ast.a(node);
+        int left = ast.b(node);
+        int right = ast.c(node);
+        if (isNumber(left) && isNumber(right)) {
+            double a = value(left);
+            double b = value(right);
+            double result;
+            switch (operator) {
+                case Symbol.PLUS: result = a + b; break;
+                case Symbol.MINUS: result = a - b; break;
+                case Symbol.STAR: result = a * b; break;
+                case Symbol.SLASH: result = a / b; break;
+                case Symbol.DIV:
+                    if ((long) b == 0) return;
+                    result = (long) a / (long) b;
+                    break;
+                case Symbol.MOD:
+                    if ((long) b == 0) return;
+                    result = (long) a % (long) b;
+                    break;
+                default:
+                    return;
+            }
+            ast.set(node, Ast.NUMBER, ast.intern(literal(result)), Ast.NIL, Ast.NIL);
+            folded++;
+            return;
+        }
+        boolean keepLeft;
+        switch (operator) {
+            case Symbol.MINUS:
+                keepLeft = isNumber(right) && value(right) == 0;
+                break;
+            case Symbol.STAR:
+                keepLeft = isNumber(right) && value(right) == 1;
+                if (!keepLeft && isNumber(left) && value(left) == 1) {
+                    copy(node, right);
+                    simplified++;
+                    return;
+                }
+                break;
+            case Symbol.SLASH:
+                keepLeft = isNumber(right) && value(right) == 1;
+                break;
+            default:
+                keepLeft = false;
+        }
+        if (keepLeft) {
+            copy(node, left);
+            simplified++;
+        }
+    }
+
+    /**
+     * Unlinks empty blocks from a statement list and returns its new head.
+     */
+    private int prune(int first) {
+        int head = Ast.NIL;
+        int last = Ast.NIL;
+        for (int node = first; node != Ast.NIL; node = ast.next(node)) {
+            if (ast.kind(node) == Ast.BLOCK && ast.a(node) == Ast.NIL) continue;
+            if (last == Ast.NIL) {
+                head = node;
+            } else {
+                ast.setNext(last, node);
+            }
+            last = node;
+        }
+        if (last != Ast.NIL) {
+            ast.setNext(last, Ast.NIL);
+        }
+        return head;
+    }
+
+    /**
+     * Turns a statement into an empty block, which {@link #prune} then drops.
+     */
+    private void remove(int node) {
+        ast.set(node, Ast.BLOCK, Ast.NIL, Ast.NIL, Ast.NIL);
+        eliminated++;
+    }
+
+    /**
+     * Makes {@code node} the node {@code from}, line included, so errors in it are still
+     * reported where it was written.
+     */
+    private void copy(int node, int from) {
+        ast.set(node, ast.kind(from), ast.a(from), ast.b(from), ast.c(from));
+        ast.setLine(node, ast.line(from));
+    }
+
+    private boolean isNumber(int node) {
+        return ast.kind(node) == Ast.NUMBER;
+    }
+
+    private boolean isConstant(int condition) {
+        return isNumber(ast.b(condition)) && isNumber(ast.c(condition));
+    }
+
+    private boolean holds(int condition) {
+        double a = value(ast.b(condition));
+        double b = value(ast.c(condition));
+        switch (ast.a(condition)) {
+            case Symbol.EQ: return a == b;
+            case Symbol.NE: return a != b;
+            case Symbol.LT: return a < b;
+            case Symbol.LE: return a <= b;
+            case Symbol.GT: return a > b;
+            default: return a >= b;
+        }
+    }
+
+    private double value(int number) {
+        return Double.parseDouble(ast.name(number));
+    }
+
+    /**
+     * Shortest literal that parses back to exactly {@code value}.
+     */
+    private static String literal(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15 && (value != 0 || 1 / value > 0)) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private void push(int entry) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+        }
+        stack[top++] = entry;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.comp439_mohammad;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of {@link BatchCompiler} results keyed by the SHA-256 of a file's content,
+ * so a file that has not changed since an earlier run is neither scanned nor parsed again.
+ * Each entry is a small binary file holding the counts and diagnostics, under a directory
+ * named after the first byte of its key. Entries are written to a temporary file and moved
+ * into place, so concurrent workers and runs never see half an entry.
+ *
+ * <p>The cache keeps to a size budget by evicting least recently used entries; a hit
+ * refreshes the entry's modification time, which serves as its last use.
+ */
+final class ParseCache {
+
+    // Bump whenever the scanner, parser or checks change what they report.
+    private static final int VERSION = 1;
+    private static final int MAGIC = 0x50435231; // "PCR1"
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong size = new AtomicLong();
+
+    ParseCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        try (Stream<Path> entries = Files.walk(directory, 2)) {
+            entries.filter(Files::isRegularFile).forEach(entry -> size.addAndGet(sizeOf(entry)));
+        }
+    }
+
+    /**
+     * SHA-256 of the file's bytes, read through a mapping rather than copied onto the heap.
+     */
+    static byte[] key(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            for (long position = 0; position < length; ) {
+                long chunk = Math.min(length - position, Integer.MAX_VALUE);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunk);
+                digest.update(buffer);
+                position += chunk;
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * The cached result for content with this key, reported for {@code file}, or null.
+     */
+    BatchCompiler.Result load(Path file, byte[] key, long startNanos) {
+        Path entry = entry(key);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(entry);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Missing, or evicted meanwhile: compile again.
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long size = in.readLong();
+            int lines = in.readInt();
+            int tokens = in.readInt();
+            int count = in.readInt();
+            List<Diagnostic> diagnostics = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int line = in.readInt();
+                int column = in.readInt();
+                byte present = in.readByte();
+                String expected = (present & 1) != 0 ? in.readUTF() : null;
+                String found = (present & 2) != 0 ? in.readUTF() : null;
+                diagnostics.add(new Diagnostic(line, column, expected, found, in.readUTF()));
+            }
+            return new BatchCompiler.Result(file, size, lines, tokens, System.nanoTime() - startNanos,
+                    diagnostics, null, true);
+        } catch (IOException e) {
+            // Truncated or foreign entry.
+            return null;
+        }
+    }
+
+    /**
+     * Caches a result that was not stopped by a failure.
+     */
+    void store(byte[] key, BatchCompiler.Result result) throws IOException {
+        if (result.failure != null) return;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 64 * result.diagnostics.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(result.bytes);
+            out.writeInt(result.lines);
+            out.writeInt(result.tokens);
+            out.writeInt(result.diagnostics.size());
+            for (Diagnostic diagnostic : result.diagnostics) {
+                out.writeInt(diagnostic.line);
+                out.writeInt(diagnostic.column);
+                out.writeByte((diagnostic.expected != null ? 1 : 0) | (diagnostic.found != null ? 2 : 0));
+                if (diagnostic.expected != null) out.writeUTF(diagnostic.expected);
+                if (diagnostic.found != null) out.writeUTF(diagnostic.found);
+                out.writeUTF(diagnostic.message);
+            }
+        }
+
+        Path entry = entry(key);
+        Files.createDirectories(entry.getParent());
+        Path temporary = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, bytes.toByteArray());
+            long replaced = sizeOf(entry);
+            try {
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (size.addAndGet(bytes.size() - replaced) > maxBytes) {
+                evict();
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    long size() {
+        return size.get();
+    }
+
+    /**
+     * Deletes least recently used entries until the cache is at 90% of its budget.
+     */
+    synchronized void evict() throws IOException {
+        if (size.get() <= maxBytes) return;
+        List<Path> entries;
+        try (Stream<Path> walk = Files.walk(directory, 2)) {
+            // Leave other workers' temporary files alone.
+            entries = walk.filter(p -> Files.isRegularFile(p) && !p.toString().endsWith(".tmp")).toList();
+        }
+        List<FileTime> used = new ArrayList<>(entries.size());
+        List<Integer> order = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            used.add(lastModified(entries.get(i)));
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(used::get));
+        long target = maxBytes / 10 * 9;
+        for (int i : order) {
+            if (size.get() <= target) break;
+            Path entry = entries.get(i);
+            long bytes = sizeOf(entry);
+            if (Files.deleteIfExists(entry)) {
+                size.addAndGet(-bytes);
+            }
+        }
+    }
+
+    private Path entry(byte[] key) {
+        String hex = HexFormat.of().formatHex(key);
+        return directory.resolve(hex.substring(0, 2)).resolve(hex);
+    }
+
+    private static long sizeOf(Path entry) {
+        try {
+            return Files.readAttributes(entry, BasicFileAttributes.class).size();
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static FileTime lastModified(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
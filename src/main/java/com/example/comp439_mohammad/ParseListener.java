@@ -0,0 +1,14 @@
+package com.example.comp439_mohammad;
+
+/**
+ * Receives the parser's trace messages at or below its configured {@link TraceLevel}.
+ */
+@FunctionalInterface
+interface ParseListener {
+
+    ParseListener CONSOLE = (level, message) -> System.out.println(message);
+
+    ParseListener NONE = (level, message) -> { };
+
+    void trace(TraceLevel level, String message);
+}
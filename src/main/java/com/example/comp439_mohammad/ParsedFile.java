@@ -0,0 +1,417 @@
+package com.example.comp439_mohammad;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary file holding the output of the front end: the token stream of a {@link TokenBuffer}
+ * and the {@link Ast} parsed from it, so other tools can start from there instead of the source.
+ *
+ * <pre>
+ * magic      "C439"
+ * version    varint
+ * strings    varint count, then per string: varint byte length, UTF-8 bytes
+ * tokens     varint section length, varint count, then per token:
+ *            0x40 + kind and a string id varint for names and numbers, otherwise the
+ *            symbol byte, plus 0x80 and a kind byte if the kind is not the symbol's usual
+ *            one (the angle brackets of #include); then start delta, length, line delta
+ *            and column (first token of a line only) as varints
+ * tree       varint section length, varint node count, varint root + 1, then per node:
+ *            kind byte, a, b, c, next, line delta (varints)
+ * </pre>
+ *
+ * Varints are unsigned LEB128; deltas are zigzag-encoded. Slots that refer to nodes
+ * (see the layout in {@link Ast}) hold 0 for NIL and otherwise 1 + the zigzagged distance
+ * back from the node itself, which is small since children are built right before
+ * their parents; other slots hold their value + 1. The string table is the tree's,
+ * in id order, followed by any token text the tree does not use, so string ids mean the
+ * same in both sections. A symbol mostly implies its token kind, and on the same line the column
+ * moves with the start offset, so neither is stored twice. An empty section has length 0.
+ *
+ * <p>Reading maps the file and decodes from the mapping: tokens through a cursor that
+ * allocates nothing per token, the tree straight into the arrays of a new {@link Ast}.
+ */
+final class ParsedFile {
+
+    static final int VERSION = 1;
+    private static final byte[] MAGIC = {'C', '4', '3', '9'};
+
+    // Set in the first byte of a token that is not identified by its symbol.
+    private static final int NAMED = 0x40;
+    // Set in the first byte of a token whose kind follows, rather than being implied by its symbol.
+    private static final int OTHER_KIND = 0x80;
+
+    private final ByteBuffer data;
+    private final int[] stringOffsets;
+    private final int tokensStart;
+    private final int tokenCount;
+    private final int treeStart;
+
+    private ParsedFile(ByteBuffer data) throws IOException {
+        this.data = data;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data.limit() <= i || data.get(i) != MAGIC[i]) {
+                throw new IOException("Not a parsed file");
+            }
+        }
+        int[] at = {MAGIC.length};
+        int version = varint(data, at);
+        if (version != VERSION) {
+            throw new IOException("Unsupported parsed file version " + version);
+        }
+        stringOffsets = new int[varint(data, at)];
+        for (int i = 0; i < stringOffsets.length; i++) {
+            stringOffsets[i] = at[0];
+            int length = varint(data, at);
+            at[0] += length;
+        }
+        int tokensLength = varint(data, at);
+        int tokensEnd = at[0] + tokensLength;
+        tokenCount = tokensLength == 0 ? 0 : varint(data, at);
+        tokensStart = at[0];
+        at[0] = tokensEnd;
+        treeStart = varint(data, at) == 0 ? -1 : at[0];
+    }
+
+    static ParsedFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Parsed file too large: " + path);
+            }
+            return new ParsedFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    static boolean isParsedFile(Path path) throws IOException {
+        byte[] head = new byte[MAGIC.length];
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.readNBytes(head, 0, head.length) == head.length && Arrays.equals(head, MAGIC);
+        }
+    }
+
+    int stringCount() {
+        return stringOffsets.length;
+    }
+
+    String string(int id) {
+        int[] at = {stringOffsets[id]};
+        int length = varint(data, at);
+        byte[] bytes = new byte[length];
+        data.get(at[0], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    int tokenCount() {
+        return tokenCount;
+    }
+
+    boolean hasTree() {
+        return treeStart >= 0;
+    }
+
+    /**
+     * A cursor over the tokens, positioned before the first one.
+     */
+    Tokens tokens() {
+        return new Tokens();
+    }
+
+    /**
+     * Decodes the tree into a new {@link Ast}; string ids are the file's.
+     */
+    Ast ast() throws IOException {
+        if (!hasTree()) {
+            throw new IOException("Parsed file has no tree");
+        }
+        int[] at = {treeStart};
+        int count = varint(data, at);
+        int root = varint(data, at) - 1;
+        Ast ast = new Ast(Math.max(16, count));
+        for (int id = 0; id < stringOffsets.length; id++) {
+            ast.intern(string(id));
+        }
+        int line = 0;
+        for (int i = 0; i < count; i++) {
+            byte kind = data.get(at[0]++);
+            if (kind < 0 || kind >= Ast.kindCount()) {
+                throw new IOException("Unknown node kind " + kind + " in parsed file");
+            }
+            int slots = Ast.nodeSlots(kind);
+            int a = decode(i, (slots & Ast.SLOT_A) != 0, varint(data, at));
+            int b = decode(i, (slots & Ast.SLOT_B) != 0, varint(data, at));
+            int c = decode(i, (slots & Ast.SLOT_C) != 0, varint(data, at));
+            int next = decode(i, true, varint(data, at));
+            line += unzigzag(varint(data, at));
+            ast.add(kind, a, b, c, line);
+            ast.setNext(i, next);
+        }
+        ast.setRoot(root);
+        return ast;
+    }
+
+    /**
+     * Token cursor: {@link #next()} decodes one token into plain fields.
+     */
+    final class Tokens {
+        private final int[] at = {tokensStart};
+        private int index = -1;
+        private byte kind;
+        private int symbol;
+        private int string = -1;
+        private int start;
+        private int length;
+        private int line;
+        private int column;
+
+        boolean next() {
+            if (index + 1 >= tokenCount) {
+                index = tokenCount;
+                return false;
+            }
+            index++;
+            int head = data.get(at[0]++) & 0xFF;
+            if ((head & NAMED) != 0) {
+                kind = (byte) (head & ~NAMED);
+                symbol = Symbol.NONE;
+                string = varint(data, at);
+            } else {
+                symbol = head & ~OTHER_KIND;
+                kind = (head & OTHER_KIND) != 0 ? data.get(at[0]++) : usualKind(symbol);
+                string = -1;
+            }
+            int moved = unzigzag(varint(data, at));
+            start += moved;
+            length = varint(data, at);
+            int lineDelta = unzigzag(varint(data, at));
+            line += lineDelta;
+            column = lineDelta != 0 || index == 0 ? varint(data, at) : column + moved;
+            return true;
+        }
+
+        int index() {
+            return index;
+        }
+
+        byte kind() {
+            return kind;
+        }
+
+        int symbol() {
+            return symbol;
+        }
+
+        /**
+         * String id of the token's text, or -1 for tokens identified by their {@link Symbol}.
+         */
+        int string() {
+            return string;
+        }
+
+        int start() {
+            return start;
+        }
+
+        int length() {
+            return length;
+        }
+
+        int line() {
+            return line;
+        }
+
+        int column() {
+            return column;
+        }
+
+        String text() {
+            return symbol != Symbol.NONE ? Symbol.text(symbol) : ParsedFile.this.string(string);
+        }
+
+        ScannerLexer.Token token() {
+            return new ScannerLexer.Token(kind, symbol, text(), line, column);
+        }
+    }
+
+    /**
+     * The tokens as a {@link TokenStream}, so the parser can run on a file that was lexed before.
+     */
+    TokenStream stream() {
+        Tokens tokens = tokens();
+        return new TokenStream() {
+            private final ScannerLexer.Token[] ahead = new ScannerLexer.Token[LOOKAHEAD];
+            private int buffered;
+            private int position;
+
+            @Override
+            public ScannerLexer.Token peek(int offset) {
+                while (buffered <= offset && tokens.next()) {
+                    ahead[buffered++] = tokens.token();
+                }
+                return offset < buffered ? ahead[offset] : null;
+            }
+
+            @Override
+            public ScannerLexer.Token advance() {
+                ScannerLexer.Token token = peek(0);
+                if (token != null) {
+                    System.arraycopy(ahead, 1, ahead, 0, --buffered);
+                    ahead[buffered] = null;
+                    position++;
+                }
+                return token;
+            }
+
+            @Override
+            public int position() {
+                return position;
+            }
+        };
+    }
+
+    /**
+     * Writes the tokens and the tree; either may be null.
+     */
+    static void write(OutputStream out, TokenBuffer tokens, Ast ast) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        Output strings = new Output();
+        int stringCount = 0;
+        if (ast != null) {
+            for (; stringCount < ast.stringCount(); stringCount++) {
+                ids.put(ast.string(stringCount), stringCount);
+            }
+        }
+
+        Output tokenSection = new Output();
+        if (tokens != null && tokens.size() > 0) {
+            tokenSection.varint(tokens.size());
+            int start = 0;
+            int line = 0;
+            for (int i = 0; i < tokens.size(); i++) {
+                if (tokens.symbol(i) == Symbol.NONE) {
+                    tokenSection.write(NAMED | tokens.kind(i));
+                    Integer id = ids.putIfAbsent(tokens.text(i), ids.size());
+                    tokenSection.varint(id != null ? id : ids.size() - 1);
+                } else if (tokens.kind(i) == usualKind(tokens.symbol(i))) {
+                    tokenSection.write(tokens.symbol(i));
+                } else {
+                    tokenSection.write(OTHER_KIND | tokens.symbol(i));
+                    tokenSection.write(tokens.kind(i));
+                }
+                tokenSection.varint(zigzag(tokens.start(i) - start));
+                tokenSection.varint(tokens.length(i));
+                tokenSection.varint(zigzag(tokens.line(i) - line));
+                if (tokens.line(i) != line || i == 0) {
+                    tokenSection.varint(tokens.column(i));
+                }
+                start = tokens.start(i);
+                line = tokens.line(i);
+            }
+        }
+
+        String[] table = new String[ids.size()];
+        ids.forEach((text, id) -> table[id] = text);
+        strings.varint(table.length);
+        for (String text : table) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            strings.varint(bytes.length);
+            strings.write(bytes, 0, bytes.length);
+        }
+
+        Output tree = new Output();
+        if (ast != null && ast.root() != Ast.NIL) {
+            tree.varint(ast.size());
+            tree.varint(ast.root() + 1);
+            int line = 0;
+            for (int node = 0; node < ast.size(); node++) {
+                int slots = Ast.nodeSlots(ast.kind(node));
+                tree.write(ast.kind(node));
+                tree.varint(encode(node, (slots & Ast.SLOT_A) != 0, ast.a(node)));
+                tree.varint(encode(node, (slots & Ast.SLOT_B) != 0, ast.b(node)));
+                tree.varint(encode(node, (slots & Ast.SLOT_C) != 0, ast.c(node)));
+                tree.varint(encode(node, true, ast.next(node)));
+                tree.varint(zigzag(ast.line(node) - line));
+                line = ast.line(node);
+            }
+        }
+
+        Output header = new Output();
+        header.write(MAGIC, 0, MAGIC.length);
+        header.varint(VERSION);
+        header.writeTo(out);
+        strings.writeTo(out);
+        Output length = new Output();
+        length.varint(tokenSection.size());
+        length.writeTo(out);
+        tokenSection.writeTo(out);
+        length = new Output();
+        length.varint(tree.size());
+        length.writeTo(out);
+        tree.writeTo(out);
+    }
+
+    private static byte usualKind(int symbol) {
+        return Symbol.isReserved(symbol) ? TokenKind.RESERVED_WORD
+                : Symbol.isOperator(symbol) ? TokenKind.OPERATOR : TokenKind.PUNCTUATION;
+    }
+
+    /**
+     * Encoded form of a slot value.
+     */
+    private static int encode(int node, boolean isNode, int value) {
+        if (!isNode || value == Ast.NIL) {
+            return value + 1;
+        }
+        return zigzag(node - value) + 1;
+    }
+
+    private static int decode(int node, boolean isNode, int encoded) {
+        if (!isNode || encoded == 0) {
+            return encoded - 1;
+        }
+        return node - unzigzag(encoded - 1);
+    }
+
+    private static int varint(ByteBuffer data, int[] at) {
+        int position = at[0];
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data.get(position++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) break;
+        }
+        at[0] = position;
+        return value;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Growable byte array with varint writes.
+     */
+    private static final class Output extends ByteArrayOutputStream {
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.comp439_mohammad;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Writes random programs in the language accepted by {@link ScannerLexer.Parser}, the same
+ * program for the same seed and settings. Output is streamed line by line, so the size of
+ * a program is bounded only by the disk. Blocks are generated with an explicit stack, like
+ * the parser reads them, so any nesting depth works.
+ *
+ * <p>Valid programs only use declared names, call functions declared before the caller,
+ * drive every loop with a counter of its own and only divide by non-zero constants, so
+ * they also run to completion. With an error rate above zero, that fraction of lines is
+ * damaged in one of a few typical ways.
+ *
+ * <pre>
+ * java com.example.comp439_mohammad.ProgramGenerator [-seed n] [-lines n] [-depth n]
+ *     [-functions n] [-errors rate] [-o file]
+ * </pre>
+ */
+final class ProgramGenerator {
+
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "div", "mod"};
+    private static final String[] RELATIONS = {"=", "=!", "<", "=<", ">", "=>"};
+
+    private static final byte BLOCK = 0;
+    private static final byte REPEAT = 1;
+
+    private final Random random;
+    private long lines = 1000;
+    private int maxDepth = 8;
+    private int functions = -1;
+    private double errorRate;
+
+    private Writer out;
+    private long written;
+    private int globals;
+    private int constants;
+    private int locals;
+
+    // Open blocks and repeats: kind, statements still to write, and the text that closes them.
+    private byte[] frameKinds = new byte[16];
+    private int[] frameCounts = new int[16];
+    private String[] frameEnds = new String[16];
+    private int depth;
+
+    ProgramGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Approximate number of lines to write.
+     */
+    void setLines(long lines) {
+        this.lines = lines;
+    }
+
+    void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Number of functions; by default one per 50 lines.
+     */
+    void setFunctions(int functions) {
+        this.functions = functions;
+    }
+
+    /**
+     * Fraction of lines, between 0 and 1, to break on purpose.
+     */
+    void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    void write(Writer out) throws IOException {
+        this.out = out;
+        written = 0;
+        int functionCount = functions >= 0 ? functions : (int) Math.min(Integer.MAX_VALUE, lines / 50);
+        globals = 4 + (int) Math.min(60, lines / 200);
+        constants = 2 + random.nextInt(4);
+
+        line("#include <stdio>;");
+        for (int i = 0; i < constants; i++) {
+            line("const int C" + i + " = " + (1 + random.nextInt(100)) + ";");
+        }
+        variables("v", globals);
+        variables("l", maxDepth + 1);
+
+        // Leave the main block its share of the lines.
+        long perFunction = functionCount == 0 ? 0 : Math.max(3, lines / (functionCount + 1));
+        for (int f = 0; f < functionCount; f++) {
+            line("function f" + f + ";");
+            locals = random.nextInt(4);
+            if (locals > 0) {
+                variables("q", locals);
+            }
+            body(f, Math.max(1, perFunction - 4), "endb;");
+            locals = 0;
+        }
+        body(functionCount, Math.max(1, lines - written - 2), "endb");
+        line("exit");
+        out.flush();
+    }
+
+    private void variables(String prefix, int count) throws IOException {
+        StringBuilder declaration = new StringBuilder("var int ");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) declaration.append(", ");
+            declaration.append(prefix).append(i);
+        }
+        line(declaration.append(';').toString());
+    }
+
+    /**
+     * Writes a block of about {@code size} lines that may call the first {@code callable} functions.
+     */
+    private void body(int callable, long size, String end) throws IOException {
+        long stop = written + size;
+        line("newb");
+        push(BLOCK, 1 + random.nextInt(4), end);
+        while (depth > 0) {
+            int top = depth - 1;
+            if (frameCounts[top] == 0) {
+                // Keep the outermost block going until it has written its share.
+                if (top == 0 && written < stop) {
+                    frameCounts[top] = 1 + random.nextInt(4);
+                    continue;
+                }
+                depth--;
+                if (frameKinds[top] == REPEAT) {
+                    line(indent() + "until l" + depth + " =< 0" + frameEnds[top]);
+                } else {
+                    line(indent() + frameEnds[top]);
+                }
+                continue;
+            }
+            frameCounts[top]--;
+            statement(callable);
+        }
+    }
+
+    private void statement(int callable) throws IOException {
+        String indent = indent();
+        int choice = random.nextInt(depth < maxDepth ? 12 : 8);
+        switch (choice) {
+            case 0:
+            case 1:
+            case 2:
+                line(indent + variable() + " := " + expression() + ";");
+                break;
+            case 3:
+                line(indent + "cin >> " + variable() + ";");
+                break;
+            case 4:
+                line(indent + "cout << " + (random.nextBoolean() ? variable() : String.valueOf(random.nextInt(1000))) + ";");
+                break;
+            case 5:
+                if (callable > 0) {
+                    line(indent + "call f" + random.nextInt(callable) + ";");
+                } else {
+                    line(indent + variable() + " := " + expression() + ";");
+                }
+                break;
+            case 6:
+                line(indent + "if (" + condition() + ") " + variable() + " := " + expression()
+                        + " else " + variable() + " := " + expression() + ";");
+                break;
+            case 7:
+                line(indent + "if (" + condition() + ") " + variable() + " := " + expression() + ";");
+                break;
+            case 8:
+                line(indent + "if (" + condition() + ") newb");
+                push(BLOCK, 1 + random.nextInt(3), "endb;");
+                break;
+            case 9:
+                line(indent + "l" + depth + " := " + (1 + random.nextInt(3)) + ";");
+                line(indent + "while (l" + depth + " > 0) newb");
+                line(indent() + "  l" + depth + " := l" + depth + " - 1;");
+                push(BLOCK, 1 + random.nextInt(3), "endb;");
+                break;
+            case 10:
+                line(indent + "l" + depth + " := " + (1 + random.nextInt(3)) + ";");
+                line(indent + "repeat l" + depth + " := l" + depth + " - 1;");
+                push(REPEAT, 1 + random.nextInt(3), ";");
+                break;
+            default:
+                line(indent + "newb");
+                push(BLOCK, 1 + random.nextInt(3), "endb;");
+        }
+    }
+
+    private void push(byte kind, int count, String end) {
+        if (depth == frameKinds.length) {
+            frameKinds = Arrays.copyOf(frameKinds, depth * 2);
+            frameCounts = Arrays.copyOf(frameCounts, depth * 2);
+            frameEnds = Arrays.copyOf(frameEnds, depth * 2);
+        }
+        frameKinds[depth] = kind;
+        frameCounts[depth] = count;
+        frameEnds[depth] = end;
+        depth++;
+    }
+
+    private String indent() {
+        return "  ".repeat(Math.min(depth, 40));
+    }
+
+    private String variable() {
+        int index = random.nextInt(globals + locals);
+        return index < globals ? "v" + index : "q" + (index - globals);
+    }
+
+    private String term() {
+        switch (random.nextInt(5)) {
+            case 0:
+                return "C" + random.nextInt(constants);
+            case 1:
+                return String.valueOf(random.nextInt(100));
+            default:
+                return variable();
+        }
+    }
+
+    private String expression() {
+        StringBuilder expression = new StringBuilder();
+        int terms = 1 + random.nextInt(5);
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                int operator = random.nextInt(OPERATORS.length);
+                expression.append(' ').append(OPERATORS[operator]).append(' ');
+                if (operator >= 3) {
+                    // Never divide by something that may be zero.
+                    expression.append(random.nextBoolean() ? "C" + random.nextInt(constants) : 1 + random.nextInt(99));
+                    continue;
+                }
+            }
+            if (random.nextInt(6) == 0) {
+                expression.append('(').append(term()).append(' ')
+                        .append(OPERATORS[random.nextInt(3)]).append(' ').append(term()).append(')');
+            } else {
+                expression.append(term());
+            }
+        }
+        return expression.toString();
+    }
+
+    private String condition() {
+        return term() + " " + RELATIONS[random.nextInt(RELATIONS.length)] + " " + term();
+    }
+
+    private void line(String text) throws IOException {
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            text = damage(text);
+        }
+        out.write(text);
+        out.write('\n');
+        written++;
+    }
+
+    /**
+     * Breaks a line the way people do: a missing semicolon or keyword, a stray character,
+     * a mistyped operator.
+     */
+    private String damage(String text) {
+        switch (random.nextInt(4)) {
+            case 0: {
+                int semicolon = text.lastIndexOf(';');
+                if (semicolon >= 0) {
+                    return text.substring(0, semicolon) + text.substring(semicolon + 1);
+                }
+                return text + " ;";
+            }
+            case 1: {
+                int at = random.nextInt(text.length() + 1);
+                return text.substring(0, at) + " @ " + text.substring(at);
+            }
+            case 2:
+                return text.contains(":=") ? text.replace(":=", "=") : text.replace("newb", "new");
+            default: {
+                String trimmed = text.trim();
+                int space = trimmed.indexOf(' ');
+                return space < 0 ? "" : trimmed.substring(space + 1);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = 1;
+        Path output = null;
+        long lines = 1000;
+        int depth = 8;
+        int functions = -1;
+        double errors = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-seed": seed = Long.parseLong(value); break;
+                case "-lines": lines = Long.parseLong(value); break;
+                case "-depth": depth = Integer.parseInt(value); break;
+                case "-functions": functions = Integer.parseInt(value); break;
+                case "-errors": errors = Double.parseDouble(value); break;
+                case "-o": output = Path.of(value); break;
+                default:
+                    System.err.println("usage: ProgramGenerator [-seed n] [-lines n] [-depth n] [-functions n] [-errors rate] [-o file]");
+                    System.exit(2);
+            }
+        }
+        ProgramGenerator generator = new ProgramGenerator(seed);
+        generator.setLines(lines);
+        generator.setMaxDepth(depth);
+        generator.setFunctions(functions);
+        generator.setErrorRate(errors);
+        try (Writer out = output != null
+                ? Files.newBufferedWriter(output, StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            generator.write(out);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.comp439_mohammad;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Where {@code cin} reads numbers from and {@code cout} writes them to.
+ */
+interface ProgramIo {
+
+    /**
+     * The next number of input; throws {@link EOFException} when there is none and
+     * {@link NumberFormatException} when the next word is not a number.
+     */
+    double read() throws IOException;
+
+    void write(double value) throws IOException;
+
+    void flush() throws IOException;
+
+    /**
+     * Reads whitespace-separated numbers from {@code in} and writes one number per line
+     * to {@code out}, whole numbers without a fraction.
+     */
+    static ProgramIo of(Reader in, Writer out) {
+        return new ProgramIo() {
+            private final StringBuilder word = new StringBuilder();
+
+            @Override
+            public double read() throws IOException {
+                int c = in.read();
+                while (c != -1 && Character.isWhitespace(c)) {
+                    c = in.read();
+                }
+                if (c == -1) {
+                    throw new EOFException("No more input");
+                }
+                word.setLength(0);
+                while (c != -1 && !Character.isWhitespace(c)) {
+                    word.append((char) c);
+                    c = in.read();
+                }
+                return Double.parseDouble(word.toString());
+            }
+
+            @Override
+            public void write(double value) throws IOException {
+                if (value == (long) value) {
+                    out.write(Long.toString((long) value));
+                } else {
+                    out.write(Double.toString(value));
+                }
+                out.write('\n');
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+        };
+    }
+}
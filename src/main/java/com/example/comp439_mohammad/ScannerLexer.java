@@ -1,21 +1,31 @@
 package com.example.comp439_mohammad;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class ScannerLexer {
 
-    private static final Set<String> RESERVED_WORDS = new HashSet<>(Arrays.asList(
-            "#include", "const", "var", "function", "newb", "endb", "if", "else",
-            "while", "repeat", "until", "call", "cin", "cout", "exit"
-    ));
-    private static final Set<String> OPERATORS = new HashSet<>(Arrays.asList(
-            ":=", "+", "-", "*", "/", "mod", "div", "=", ">", "<", "=>", "=<", "=!"
-    ));
+    static final Set<String> RESERVED_WORDS = Symbol.texts(Symbol.FIRST_RESERVED, Symbol.LAST_RESERVED);
+    static final Set<String> OPERATORS = Symbol.texts(Symbol.FIRST_OPERATOR, Symbol.LAST_OPERATOR);
 
     static class SyntaxError extends Exception {
+        final int line;
+        final int column;
+        final String expected;
+        final String found;
+
         public SyntaxError(String message) {
+            this(message, 0, 0, null, null);
+        }
+
+        public SyntaxError(String message, int line, int column, String expected, String found) {
             super(message);
+            this.line = line;
+            this.column = column;
+            this.expected = expected;
+            this.found = found;
         }
     }
 
@@ -23,11 +33,26 @@ public class ScannerLexer {
         String type;
         String value;
         int line;
+        int column;
+        final byte kind;
+        final int symbol;
 
         public Token(String type, String value, int line) {
             this.type = type;
             this.value = value;
             this.line = line;
+            this.kind = TokenKind.of(type);
+            this.symbol = kind == TokenKind.RESERVED_WORD || kind == TokenKind.OPERATOR
+                    || kind == TokenKind.PUNCTUATION ? Symbol.of(value) : Symbol.NONE;
+        }
+
+        Token(byte kind, int symbol, String value, int line, int column) {
+            this.type = TokenKind.name(kind);
+            this.value = value;
+            this.line = line;
+            this.column = column;
+            this.kind = kind;
+            this.symbol = symbol;
         }
 
         @Override
@@ -42,82 +67,88 @@ public class ScannerLexer {
 
     public static List<Token> scanFile(String filename) throws IOException, SyntaxError {
         List<Token> tokens = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new FileReader(filename));
+        scanFile(filename, tokens::add);
 
-        String line;
-        int lineNumber = 0;
-
-        while ((line = reader.readLine()) != null) {
-            lineNumber++;
-            tokens.addAll(tokenizeLine(line, lineNumber));
+        PrintStream out = System.out;
+        out.print("Tokenized: [");
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) out.print(", ");
+            out.print(tokens.get(i));
         }
-
-        reader.close();
-
-        System.out.println("Tokenized: " + tokens);
+        out.println("]");
 
         return tokens;
     }
 
-    private static List<Token> tokenizeLine(String line, int lineNumber) throws SyntaxError {
-        List<Token> tokens = new ArrayList<>();
-        String[] parts = line.split("\\s+|(?=[(){};,<>=:+*\\-!])|(?<=[(){};,<>=:+*\\-!])");
-
-        boolean inIncludeContext = line.trim().startsWith("#include");
-
-        for (int i = 0; i < parts.length; i++) {
-            String part = parts[i].trim();
-            if (part.isEmpty()) continue;
-
-            if (inIncludeContext && (part.equals("<") || part.equals(">"))) {
-                tokens.add(new Token("Punctuation", part, lineNumber));
-                continue;
-            }
-
-            if (i + 1 < parts.length) {
-                String combined = part + parts[i + 1];
+    public static void scanFile(String filename, Consumer<? super Token> sink) throws IOException, SyntaxError {
+        scanFile(filename, sink, null);
+    }
 
-                if (combined.equals("=<")) {
-                    tokens.add(new Token("Operator", "=<", lineNumber));
-                    i++;
-                    continue;
-                } else if (combined.equals("=!")) {
-                    tokens.add(new Token("Operator", "=!", lineNumber));
-                    i++;
-                    continue;
-                } else if (OPERATORS.contains(combined)) {
-                    tokens.add(new Token("Operator", combined, lineNumber));
-                    i++;
-                    continue;
+    /**
+     * Scans a file into {@code sink}, recording every line as a {@link CompilerMetrics#SCAN}
+     * run in {@code metrics} unless it is null. The time and allocations include the sink's.
+     */
+    static void scanFile(String filename, Consumer<? super Token> sink, CompilerMetrics metrics)
+            throws IOException, SyntaxError {
+        try (MappedLineReader reader = new MappedLineReader(Path.of(filename))) {
+            if (metrics == null) {
+                while (reader.nextLine()) {
+                    DfaScanner.scanLine(reader.text(), reader.lineStart(), reader.lineEnd(), reader.lineNumber(), sink);
                 }
-            }
-
-            if (RESERVED_WORDS.contains(part)) {
-                tokens.add(new Token("ReservedWord", part, lineNumber));
-            }
-            else if (OPERATORS.contains(part)) {
-                tokens.add(new Token("Operator", part, lineNumber));
-            }
-            else if (part.matches("\\d+(\\.\\d+)?")) {
-                tokens.add(new Token("Number", part, lineNumber));
-            }
-            else if (part.matches("[a-zA-Z_][a-zA-Z0-9_]*")) {
-                tokens.add(new Token("Identifier", part, lineNumber));
-            }
-            else if (part.matches("[(){};,]")) {
-                tokens.add(new Token("Punctuation", part, lineNumber));
-            }
-            else {
-                throw new SyntaxError("Unexpected token '" + part + "' on line " + lineNumber);
+                return;
+            }
+            int[] count = new int[1];
+            Consumer<Token> counted = token -> {
+                count[0]++;
+                sink.accept(token);
+            };
+            while (reader.nextLine()) {
+                long start = System.nanoTime();
+                long allocated = CompilerMetrics.allocatedBytes();
+                int before = count[0];
+                DfaScanner.scanLine(reader.text(), reader.lineStart(), reader.lineEnd(), reader.lineNumber(), counted);
+                metrics.record(CompilerMetrics.SCAN, System.nanoTime() - start, count[0] - before, 1,
+                        CompilerMetrics.allocatedBytes() - allocated);
             }
         }
+    }
 
-        return tokens;
+    public static LexingTokenStream open(String filename) throws IOException {
+        return new LexingTokenStream(new MappedLineReader(Path.of(filename)));
     }
 
     static class Parser {
-        private final List<Token> tokens;
-        private int current = 0;
+        private final TokenStream tokens;
+        private final int traceLevel;
+        private final ParseListener listener;
+        private final Ast ast;
+        private static final byte FRAME_BLOCK = 0;
+        private static final byte FRAME_REPEAT = 1;
+        private static final byte FRAME_IF_THEN = 2;
+        private static final byte FRAME_IF_ELSE = 3;
+        private static final byte FRAME_WHILE = 4;
+        private static final byte FRAME_PAREN = 5;
+
+        static final int DEFAULT_MAX_DEPTH = 1 << 20;
+
+        // Explicit parse stack: open blocks, compound statements and parentheses.
+        private byte[] frameKinds = new byte[64];
+        private int[] frameNodes = new int[64];
+        private int[] frameLasts = new int[64];
+        private int depth;
+        private int blockDepth;
+        private int maxDepth = DEFAULT_MAX_DEPTH;
+        private int deepest;
+
+        private CompilerMetrics metrics;
+        // Line of the last token consumed, for the lines a phase went through.
+        private int lastLine;
+
+        private boolean recover;
+        private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+        // Tail of the declaration list that libDecl() and declarations() are appending to.
+        private int lastDecl = Ast.NIL;
 
         static class MaxDepthExceededException extends RuntimeException {
             public MaxDepthExceededException(String message) {
@@ -125,361 +156,777 @@ public class ScannerLexer {
             }
         }
 
+        private interface Rule {
+            int parse() throws SyntaxError;
+        }
+
         public Parser(List<Token> tokens) {
+            this(new ListTokenStream(tokens));
+        }
+
+        public Parser(TokenStream tokens) {
+            this(tokens, TraceLevel.RULES, ParseListener.CONSOLE);
+        }
+
+        public Parser(TokenStream tokens, TraceLevel traceLevel, ParseListener listener) {
+            this(tokens, traceLevel, listener, new Ast());
+        }
+
+        /**
+         * Parser that adds its nodes to an existing tree, as {@link IncrementalDocument}
+         * does when it reparses one part of a program.
+         */
+        Parser(TokenStream tokens, TraceLevel traceLevel, ParseListener listener, Ast ast) {
+            this.ast = ast;
             this.tokens = tokens;
+            this.traceLevel = traceLevel.ordinal();
+            this.listener = listener;
         }
 
-        public void parse() throws SyntaxError {
-            program();
+        /**
+         * Limits how deeply blocks, statements and parentheses may nest before
+         * {@link MaxDepthExceededException} is thrown.
+         */
+        public void setMaxDepth(int maxDepth) {
+            this.maxDepth = maxDepth;
         }
 
-        private void program() throws SyntaxError {
-            System.out.println("Parsing program...");
+        /**
+         * In recovery mode syntax errors are recorded instead of thrown: the parser
+         * skips ahead to the next {@code ;}, {@code endb}, {@code until} or top-level
+         * declaration and carries on, so one pass reports every error in the file.
+         */
+        public void setRecovery(boolean recover) {
+            this.recover = recover;
+        }
 
-            libDecl();
+        public List<Diagnostic> diagnostics() {
+            return diagnostics;
+        }
 
-            declarations();
+        /**
+         * Records each {@code libDecl}, {@code declarations}, {@code functionDecl} and
+         * {@code block} run, and the deepest nesting reached, in {@code metrics}.
+         */
+        void setMetrics(CompilerMetrics metrics) {
+            this.metrics = metrics;
+        }
 
-            while (match("ReservedWord", "function")) {
-                functionDecl();
+        public Ast parse() throws SyntaxError {
+            try {
+                ast.setRoot(program());
+            } finally {
+                if (metrics != null) metrics.depth(deepest);
             }
+            return ast;
+        }
 
-            block();
+        private int program() throws SyntaxError {
+            trace(TraceLevel.SUMMARY, "Parsing program...");
+            int line = peek().line;
 
-            exitStatement();
+            int firstDecl = parsePrologue();
 
-            if (!isAtEnd()) {
-                throw error(peek(), "Extra tokens after 'exit'. Program should end.");
+            int firstFunction = Ast.NIL;
+            int lastFunction = Ast.NIL;
+            while (match(TokenKind.RESERVED_WORD, Symbol.FUNCTION)) {
+                int function = parseFunction();
+                if (function != Ast.NIL) {
+                    firstFunction = firstFunction == Ast.NIL ? function : firstFunction;
+                    lastFunction = ast.append(lastFunction, function);
+                }
             }
 
-            System.out.println("Finished program.");
+            int main = parseMain();
+
+            trace(TraceLevel.SUMMARY, "Finished program.");
+            return ast.add(Ast.PROGRAM, firstDecl, firstFunction, main, line);
         }
 
-        private void libDecl() throws SyntaxError {
-            while (match("ReservedWord", "#include")) {
-                consume("ReservedWord", "#include", null);        // Match #include
-                consume("Punctuation", "<", "Expected '<' after #include.");
-                consume("Identifier", null, "Expected library name after '<'.");
-                consume("Punctuation", ">", "Expected '>' after library name.");
-                consume("Punctuation", ";", "Expected ';' after library declaration.");
-                System.out.println("Parsed #include directive.");
+        /**
+         * {@code #include}, {@code const} and {@code var} declarations; returns the first one.
+         */
+        int parsePrologue() throws SyntaxError {
+            int firstDecl = measure(CompilerMetrics.LIB_DECL, this::libDecl);
+
+            int decls = measure(CompilerMetrics.DECLARATIONS, this::declarations);
+            firstDecl = firstDecl == Ast.NIL ? decls : firstDecl;
+            lastDecl = Ast.NIL;
+            return firstDecl;
+        }
+
+        /**
+         * One {@code function} declaration, or {@link Ast#NIL} if it could not be recovered.
+         */
+        int parseFunction() throws SyntaxError {
+            try {
+                return measure(CompilerMetrics.FUNCTION_DECL, this::functionDecl);
+            } catch (SyntaxError e) {
+                recoverTopLevel(e);
+                return Ast.NIL;
             }
-            System.out.println("Finished parsing library declarations (if any).");
         }
 
-        private void declarations() throws SyntaxError {
-            while (!isAtEnd() && match("ReservedWord", "const")) {
-                constDecl();
+        /**
+         * The main block and the closing {@code exit}; returns the block.
+         */
+        int parseMain() throws SyntaxError {
+            int main = Ast.NIL;
+            do {
+                try {
+                    main = measure(CompilerMetrics.BLOCK, this::block);
+                } catch (SyntaxError e) {
+                    recoverTopLevel(e);
+                }
+            } while (main == Ast.NIL && check(TokenKind.RESERVED_WORD, Symbol.NEWB));
+
+            try {
+                exitStatement();
+
+                if (!isAtEnd()) {
+                    throw error(peek(), "Extra tokens after 'exit'. Program should end.");
+                }
+            } catch (SyntaxError e) {
+                if (!recover) throw e;
+                diagnostics.add(Diagnostic.of(e));
+            }
+            return main;
+        }
+
+        private int libDecl() throws SyntaxError {
+            int first = Ast.NIL;
+            while (match(TokenKind.RESERVED_WORD, Symbol.INCLUDE)) {
+                try {
+                    Token include = consume(TokenKind.RESERVED_WORD, Symbol.INCLUDE, null);        // Match #include
+                    consume(TokenKind.PUNCTUATION, Symbol.LT, "Expected '<' after #include.");
+                    Token library = consume(TokenKind.IDENTIFIER, Symbol.NONE, "Expected library name after '<'.");
+                    consume(TokenKind.PUNCTUATION, Symbol.GT, "Expected '>' after library name.");
+                    consume(TokenKind.PUNCTUATION, Symbol.SEMICOLON, "Expected ';' after library declaration.");
+                    int node = ast.add(Ast.LIBRARY, ast.intern(library.value), Ast.NIL, Ast.NIL, include.line);
+                    first = first == Ast.NIL ? node : first;
+                    lastDecl = ast.append(lastDecl, node);
+                    trace(TraceLevel.RULES, "Parsed #include directive.");
+                } catch (SyntaxError e) {
+                    recoverTopLevel(e);
+                }
             }
-            while (!isAtEnd() && match("ReservedWord", "var")) {
-                varDecl();
+            trace(TraceLevel.RULES, "Finished parsing library declarations (if any).");
+            return first;
+        }
+
+        private int declarations() throws SyntaxError {
+            int first = Ast.NIL;
+            while (!isAtEnd() && match(TokenKind.RESERVED_WORD, Symbol.CONST)) {
+                try {
+                    int node = constDecl();
+                    first = first == Ast.NIL ? node : first;
+                    lastDecl = ast.append(lastDecl, node);
+                } catch (SyntaxError e) {
+                    recoverTopLevel(e);
+                }
+            }
+            while (!isAtEnd() && match(TokenKind.RESERVED_WORD, Symbol.VAR)) {
+                try {
+                    int node = varDecl();
+                    first = first == Ast.NIL ? node : first;
+                    lastDecl = ast.append(lastDecl, node);
+                } catch (SyntaxError e) {
+                    recoverTopLevel(e);
+                }
             }
+            return first;
         }
 
-        private void constDecl() throws SyntaxError {
-            System.out.println("Parsing const declaration...");
-            consume("ReservedWord", "const", "Expected 'const' keyword.");
-            Token type = consume("Identifier", null, "Expected data type (e.g., int, float, char) after 'const'.");
-            Token constName = consume("Identifier", null, "Expected constant name after type.");
-            consume("Operator", "=", "Expected '=' after constant name.");
+        private int constDecl() throws SyntaxError {
+            trace(TraceLevel.RULES, "Parsing const declaration...");
+            Token keyword = consume(TokenKind.RESERVED_WORD, Symbol.CONST, "Expected 'const' keyword.");
+            Token type = consume(TokenKind.IDENTIFIER, Symbol.NONE, "Expected data type (e.g., int, float, char) after 'const'.");
+            Token constName = consume(TokenKind.IDENTIFIER, Symbol.NONE, "Expected constant name after type.");
+            consume(TokenKind.OPERATOR, Symbol.EQ, "Expected '=' after constant name.");
 
             Token valToken = null;
-            if (match("Number")) {
+            if (match(TokenKind.NUMBER)) {
                 valToken = advance();
             } else {
                 throw error(peek(), "Expected numeric constant value after '='.");
             }
 
-            consume("Punctuation", ";", "Expected ';' at the end of constant declaration.");
+            consume(TokenKind.PUNCTUATION, Symbol.SEMICOLON, "Expected ';' at the end of constant declaration.");
 
-            System.out.println("Finished const declaration: "
-                    + type.value + " " + constName.value + " = " + valToken.value);
+            if (tracing(TraceLevel.RULES)) {
+                trace(TraceLevel.RULES, "Finished const declaration: "
+                        + type.value + " " + constName.value + " = " + valToken.value);
+            }
+            return ast.add(Ast.CONST_DECL, ast.intern(constName.value), ast.intern(type.value),
+                    ast.intern(valToken.value), keyword.line);
         }
 
-        private void varDecl() throws SyntaxError {
-            System.out.println("Parsing var declaration...");
-            consume("ReservedWord", "var", "Expected 'var' keyword.");
-
-            Token typeToken = consume("Identifier", null, "Expected data type after 'var'.");
-            System.out.println("Variable type: " + typeToken.value);
+        private int varDecl() throws SyntaxError {
+            trace(TraceLevel.RULES, "Parsing var declaration...");
+            Token keyword = consume(TokenKind.RESERVED_WORD, Symbol.VAR, "Expected 'var' keyword.");
 
-            Token firstVar = consume("Identifier", null, "Expected variable name.");
-            System.out.println("Declared variable: " + typeToken.value + " " + firstVar.value);
+            Token typeToken = consume(TokenKind.IDENTIFIER, Symbol.NONE, "Expected data type after 'var'.");
+            if (tracing(TraceLevel.RULES)) {
+                trace(TraceLevel.RULES, "Variable type: " + typeToken.value);
+            }
 
-            while (match("Punctuation", ",")) {
-                consume("Punctuation", ",", null);
-                Token additionalVariableName = consume("Identifier", null, "Expected variable name after ','.");
-                System.out.println("Declared additional variable: " + additionalVariableName.value);
+            Token firstVar = consume(TokenKind.IDENTIFIER, Symbol.NONE, "Expected variable name.");
+            if (tracing(TraceLevel.RULES)) {
+                trace(TraceLevel.RULES, "Declared variable: " + typeToken.value + " " + firstVar.value);
             }
+            int first = name(firstVar);
+            int last = first;
 
-            consume("Punctuation", ";", "Expected ';' at the end of variable declaration.");
-            System.out.println("Finished var declaration.");
+            while (match(TokenKind.PUNCTUATION, Symbol.COMMA)) {
+                consume(TokenKind.PUNCTUATION, Symbol.COMMA, null);
+                Token additionalVariableName = consume(TokenKind.IDENTIFIER, Symbol.NONE, "Expected variable name after ','.");
+                if (tracing(TraceLevel.RULES)) {
+                    trace(TraceLevel.RULES, "Declared additional variable: " + additionalVariableName.value);
+                }
+                last = ast.append(last, name(additionalVariableName));
+            }
+
+            consume(TokenKind.PUNCTUATION, Symbol.SEMICOLON, "Expected ';' at the end of variable declaration.");
+            trace(TraceLevel.RULES, "Finished var declaration.");
+            return ast.add(Ast.VAR_DECL, ast.intern(typeToken.value), first, Ast.NIL, keyword.line);
+        }
+
+        private int functionDecl() throws SyntaxError {
+            trace(TraceLevel.RULES, "Parsing function declaration...");
+
+            Token keyword = consume(TokenKind.RESERVED_WORD, Symbol.FUNCTION, "Expected 'function' keyword.");
+            Token functionName = keyword;
+            try {
+                functionName = consume(TokenKind.IDENTIFIER, Symbol.NONE, "Expected function name.");
+                consume(TokenKind.PUNCTUATION, Symbol.SEMICOLON, "Expected ';' after function name.");
+            } catch (SyntaxError e) {
+                // Keep going with the declarations and body of a function with a broken header.
+                recoverTopLevel(e);
+            }
+
+            if (tracing(TraceLevel.RULES)) {
+                trace(TraceLevel.RULES, "Declared function: " + functionName.value);
+            }
+
+            lastDecl = Ast.NIL;
+            int decls = measure(CompilerMetrics.DECLARATIONS, this::declarations);
+            lastDecl = Ast.NIL;
+
+            int body = measure(CompilerMetrics.BLOCK, this::block);
+
+            consume(TokenKind.PUNCTUATION, Symbol.SEMICOLON, "Expected ';' after function block.");
+
+            if (tracing(TraceLevel.RULES)) {
+                trace(TraceLevel.RULES, "Finished function declaration: " + functionName.value);
+            }
+            return ast.add(Ast.FUNCTION_DECL, ast.intern(functionName.value), decls, body, keyword.line);
+        }
+
+        /**
+         * Parses a {@code newb ... endb} block and everything nested in it without recursing:
+         * open blocks, ifs, whiles and repeats live on the parser's frame stack, and each
+         * finished statement is handed to the frame below it.
+         */
+        private int block() throws SyntaxError {
+            int base = depth;
+            openBlock();
+            int done = Ast.NIL;
+            while (true) {
+                try {
+                    if (done != Ast.NIL) {
+                        if (depth == base) return done;
+                        done = complete(done);
+                        continue;
+                    }
+                    switch (frameKinds[depth - 1]) {
+                        case FRAME_BLOCK:
+                            done = !check(TokenKind.RESERVED_WORD, Symbol.ENDB) && !isAtEnd() ? statement() : closeBlock();
+                            break;
+                        case FRAME_REPEAT:
+                            done = !check(TokenKind.RESERVED_WORD, Symbol.UNTIL) && !isAtEnd() ? statement() : closeRepeat();
+                            break;
+                        case FRAME_WHILE:
+                            openBlock();
+                            break;
+                        default:
+                            done = statement();
+                    }
+                } catch (SyntaxError e) {
+                    if (!recover) throw e;
+                    diagnostics.add(Diagnostic.of(e));
+                    done = Ast.NIL;
+                    if (!synchronize(base)) {
+                        while (depth > base + 1) pop();
+                        return pop();
+                    }
+                }
+            }
         }
 
-        private void functionDecl() throws SyntaxError {
-            System.out.println("Parsing function declaration...");
-
-            consume("ReservedWord", "function", "Expected 'function' keyword.");
-            Token functionName = consume("Identifier", null, "Expected function name.");
-            consume("Punctuation", ";", "Expected ';' after function name.");
-
-            System.out.println("Declared function: " + functionName.value);
-
-            declarations();
-
-            block();
-
-            consume("Punctuation", ";", "Expected ';' after function block.");
-
-            System.out.println("Finished function declaration: " + functionName.value);
+        /**
+         * Panic-mode recovery inside a block: drops the statement frames that were being
+         * built and skips tokens up to a point where the enclosing list can carry on.
+         * Returns false if the block itself has to be abandoned (end of input or a
+         * top-level {@code function}).
+         */
+        private boolean synchronize(int base) throws SyntaxError {
+            while (frameKinds[depth - 1] != FRAME_BLOCK && frameKinds[depth - 1] != FRAME_REPEAT) {
+                pop();
+            }
+            while (true) {
+                try {
+                    if (isAtEnd() || check(TokenKind.RESERVED_WORD, Symbol.FUNCTION)) {
+                        return false;
+                    }
+                    if (check(TokenKind.PUNCTUATION, Symbol.SEMICOLON)) {
+                        advance();
+                        return true;
+                    }
+                    if (check(TokenKind.RESERVED_WORD, Symbol.ENDB)) {
+                        while (frameKinds[depth - 1] != FRAME_BLOCK) pop();
+                        return true;
+                    }
+                    if (check(TokenKind.RESERVED_WORD, Symbol.UNTIL) && hasFrame(base, FRAME_REPEAT)) {
+                        while (frameKinds[depth - 1] != FRAME_REPEAT) pop();
+                        return true;
+                    }
+                    advance();
+                } catch (SyntaxError e) {
+                    diagnostics.add(Diagnostic.of(e));
+                }
+            }
         }
 
-        private void block() throws SyntaxError {
-            System.out.println("Parsing block...");
-
-            consume("ReservedWord", "newb", "Expected 'newb' to start a block.");
-            stmtList();
-            consume("ReservedWord", "endb", "Expected 'endb' to close the block.");
-
-            System.out.println("Block parsed successfully.");
+        private boolean hasFrame(int base, byte kind) {
+            for (int i = depth - 1; i > base; i--) {
+                if (frameKinds[i] == kind) return true;
+            }
+            return false;
         }
 
-        private void stmtList() throws SyntaxError {
-            while (!check("ReservedWord", "endb") && !isAtEnd()) {
-                statement();
-
-                maybeConsumeSemicolon();
+        /**
+         * Top-level recovery: records the error and skips past the next {@code ;}, or up to
+         * the next declaration, block or {@code exit}, whichever comes first.
+         */
+        private void recoverTopLevel(SyntaxError error) throws SyntaxError {
+            if (!recover) throw error;
+            diagnostics.add(Diagnostic.of(error));
+            while (true) {
+                try {
+                    if (isAtEnd()) return;
+                    switch (tokens.symbol()) {
+                        case Symbol.INCLUDE:
+                        case Symbol.CONST:
+                        case Symbol.VAR:
+                        case Symbol.FUNCTION:
+                        case Symbol.NEWB:
+                        case Symbol.EXIT:
+                            if (tokens.kind() == TokenKind.RESERVED_WORD) return;
+                            break;
+                        default:
+                            break;
+                    }
+                    if (advance().symbol == Symbol.SEMICOLON) return;
+                } catch (SyntaxError e) {
+                    diagnostics.add(Diagnostic.of(e));
+                }
             }
         }
 
+        private void openBlock() throws SyntaxError {
+            trace(TraceLevel.RULES, "Parsing block...");
+
+            Token newb = consume(TokenKind.RESERVED_WORD, Symbol.NEWB, "Expected 'newb' to start a block.");
+            push(FRAME_BLOCK, ast.add(Ast.BLOCK, Ast.NIL, Ast.NIL, Ast.NIL, newb.line));
+        }
+
+        private int closeBlock() throws SyntaxError {
+            consume(TokenKind.RESERVED_WORD, Symbol.ENDB, "Expected 'endb' to close the block.");
+
+            trace(TraceLevel.RULES, "Block parsed successfully.");
+            return pop();
+        }
+
+        private int closeRepeat() throws SyntaxError {
+            consume(TokenKind.RESERVED_WORD, Symbol.UNTIL, "Expected 'until' after repeat block.");
+            // Pop before the condition so a broken condition does not leave the loop open.
+            int node = pop();
+            ast.setB(node, parseCondition());
+            trace(TraceLevel.RULES, "Repeat statement parsed successfully.");
+            return node;
+        }
+
+        /**
+         * Hands a finished statement to the frame on top of the stack. Returns the frame's
+         * own node if that completed it too, otherwise {@link Ast#NIL}.
+         */
+        private int complete(int child) throws SyntaxError {
+            int top = depth - 1;
+            int node = frameNodes[top];
+            switch (frameKinds[top]) {
+                case FRAME_BLOCK:
+                case FRAME_REPEAT:
+                    if (frameLasts[top] == Ast.NIL) {
+                        ast.setA(node, child);
+                    } else {
+                        ast.append(frameLasts[top], child);
+                    }
+                    frameLasts[top] = child;
+                    maybeConsumeSemicolon();
+                    return Ast.NIL;
+                case FRAME_IF_THEN:
+                    ast.setB(node, child);
+                    if (match(TokenKind.RESERVED_WORD, Symbol.ELSE)) {
+                        advance();
+                        frameKinds[top] = FRAME_IF_ELSE;
+                        return Ast.NIL;
+                    }
+                    trace(TraceLevel.RULES, "Finished if statement.");
+                    return pop();
+                case FRAME_IF_ELSE:
+                    ast.setC(node, child);
+                    trace(TraceLevel.RULES, "Finished if statement.");
+                    return pop();
+                default:
+                    ast.setB(node, child);
+                    return pop();
+            }
+        }
+
+        private void push(byte kind, int node) throws SyntaxError {
+            if (depth >= maxDepth) {
+                throw new MaxDepthExceededException(
+                        "Maximum nesting depth of " + maxDepth + " exceeded at line " + peek().line);
+            }
+            if (depth == frameKinds.length) {
+                int capacity = depth * 2;
+                frameKinds = Arrays.copyOf(frameKinds, capacity);
+                frameNodes = Arrays.copyOf(frameNodes, capacity);
+                frameLasts = Arrays.copyOf(frameLasts, capacity);
+            }
+            frameKinds[depth] = kind;
+            frameNodes[depth] = node;
+            frameLasts[depth] = Ast.NIL;
+            depth++;
+            if (depth > deepest) deepest = depth;
+            if (kind == FRAME_BLOCK) blockDepth++;
+        }
+
+        private int pop() {
+            depth--;
+            if (frameKinds[depth] == FRAME_BLOCK) blockDepth--;
+            return frameNodes[depth];
+        }
+
         private void maybeConsumeSemicolon() throws SyntaxError {
-            if (match("Punctuation", ";")) {
+            if (match(TokenKind.PUNCTUATION, Symbol.SEMICOLON)) {
                 advance(); // consume semicolon
-                System.out.println("Consumed semicolon after statement.");
+                trace(TraceLevel.RULES, "Consumed semicolon after statement.");
             } else {
                 Token currentToken = peek();
                 throw new SyntaxError(
                         "Unexpected token '" + currentToken.value +
-                                "' instead of a semicolon after statement. (Line " + currentToken.line + ")"
+                                "' instead of a semicolon after statement. (Line " + currentToken.line + ")",
+                        currentToken.line, currentToken.column, "';'", currentToken.value
                 );
             }
         }
 
-        private void statement() throws SyntaxError {
-            System.out.println("Parsing statement...");
+        /**
+         * Parses one statement. Simple statements are returned finished; compound ones
+         * push a frame and return {@link Ast#NIL}, to be finished by {@link #block()}.
+         */
+        private int statement() throws SyntaxError {
+            trace(TraceLevel.RULES, "Parsing statement...");
 
-            if (match("ReservedWord", "newb")) {
-                block();
+            if (match(TokenKind.RESERVED_WORD, Symbol.NEWB)) {
+                openBlock();
+                return Ast.NIL;
             }
-            else if (match("ReservedWord", "if")) {
+            else if (match(TokenKind.RESERVED_WORD, Symbol.IF)) {
                 ifStatement();
+                return Ast.NIL;
             }
-            else if (match("ReservedWord", "while")) {
+            else if (match(TokenKind.RESERVED_WORD, Symbol.WHILE)) {
                 whileStatement();
+                return Ast.NIL;
             }
-            else if (match("ReservedWord", "repeat")) {
+            else if (match(TokenKind.RESERVED_WORD, Symbol.REPEAT)) {
                 repeatStatement();
+                return Ast.NIL;
             }
-            else if (match("ReservedWord", "call")) {
-                callStatement();
+            else if (match(TokenKind.RESERVED_WORD, Symbol.CALL)) {
+                return callStatement();
             }
-            else if (match("ReservedWord", "cin")) {
-                cinStatement();
+            else if (match(TokenKind.RESERVED_WORD, Symbol.CIN)) {
+                return cinStatement();
             }
-            else if (match("ReservedWord", "cout")) {
-                coutStatement();
+            else if (match(TokenKind.RESERVED_WORD, Symbol.COUT)) {
+                return coutStatement();
             }
-            else if (match("Identifier")) {
-                assignment();
+            else if (match(TokenKind.IDENTIFIER)) {
+                return assignment();
             }
-            else if (match("ReservedWord", "exit")) {
-                exitStatement();
+            else if (match(TokenKind.RESERVED_WORD, Symbol.EXIT)) {
+                return exitStatement();
             }
             else {
                 throw error(peek(), "Unexpected statement.");
             }
         }
 
-        private void assignment() throws SyntaxError {
-            Token varName = consume("Identifier", null, "Expected variable name for assignment.");
-            consume("Operator", ":=", "Expected ':=' in assignment.");
-            Token value = expression();
-            System.out.println("Assignment: " + varName.value + " := " + value.value);
+        private int assignment() throws SyntaxError {
+            Token varName = consume(TokenKind.IDENTIFIER, Symbol.NONE, "Expected variable name for assignment.");
+            consume(TokenKind.OPERATOR, Symbol.ASSIGN, "Expected ':=' in assignment.");
+            int value = expression();
+            if (tracing(TraceLevel.RULES)) {
+                trace(TraceLevel.RULES, "Assignment: " + varName.value + " := " + ast.render(value));
+            }
+            return ast.add(Ast.ASSIGN, ast.intern(varName.value), value, Ast.NIL, varName.line);
         }
 
-        private void cinStatement() throws SyntaxError {
-            System.out.println("Parsing cin statement...");
-            consume("ReservedWord", "cin", "Expected 'cin' keyword.");
-            consume("Operator", ">", "Expected '>>' after 'cin'.");
-            consume("Operator", ">", "Expected '>>' after 'cin'.");
-            Token variable = consume("Identifier", null, "Expected variable after 'cin >>'.");
-            System.out.println("Input value assigned to: " + variable.value);
+        private int cinStatement() throws SyntaxError {
+            trace(TraceLevel.RULES, "Parsing cin statement...");
+            Token keyword = consume(TokenKind.RESERVED_WORD, Symbol.CIN, "Expected 'cin' keyword.");
+            consume(TokenKind.OPERATOR, Symbol.GT, "Expected '>>' after 'cin'.");
+            consume(TokenKind.OPERATOR, Symbol.GT, "Expected '>>' after 'cin'.");
+            Token variable = consume(TokenKind.IDENTIFIER, Symbol.NONE, "Expected variable after 'cin >>'.");
+            if (tracing(TraceLevel.RULES)) {
+                trace(TraceLevel.RULES, "Input value assigned to: " + variable.value);
+            }
+            return ast.add(Ast.CIN, ast.intern(variable.value), Ast.NIL, Ast.NIL, keyword.line);
         }
 
-        private void coutStatement() throws SyntaxError {
-            System.out.println("Parsing cout statement...");
-            consume("ReservedWord", "cout", "Expected 'cout' keyword.");
-            consume("Operator", "<", "Expected '<<' after 'cout'.");
-            consume("Operator", "<", "Expected '<<' after 'cout'.");
+        private int coutStatement() throws SyntaxError {
+            trace(TraceLevel.RULES, "Parsing cout statement...");
+            Token keyword = consume(TokenKind.RESERVED_WORD, Symbol.COUT, "Expected 'cout' keyword.");
+            consume(TokenKind.OPERATOR, Symbol.LT, "Expected '<<' after 'cout'.");
+            consume(TokenKind.OPERATOR, Symbol.LT, "Expected '<<' after 'cout'.");
 
-            if (match("Identifier") || match("Number")) {
+            if (match(TokenKind.IDENTIFIER) || match(TokenKind.NUMBER)) {
                 Token outputToken = advance();
-                System.out.println("Output value: " + outputToken.value);
+                if (tracing(TraceLevel.RULES)) {
+                    trace(TraceLevel.RULES, "Output value: " + outputToken.value);
+                }
+                int operand = outputToken.kind == TokenKind.NUMBER ? number(outputToken) : name(outputToken);
+                return ast.add(Ast.COUT, operand, Ast.NIL, Ast.NIL, keyword.line);
             } else {
                 throw error(peek(), "Expected variable or number after 'cout <<'.");
             }
         }
 
         private void ifStatement() throws SyntaxError {
-            System.out.println("Parsing if statement...");
-            consume("ReservedWord", "if", "Expected 'if' keyword.");
-            consume("Punctuation", "(", "Expected '(' after 'if'.");
-            parseCondition();
-            consume("Punctuation", ")", "Expected ')' after condition.");
-
-            statement();
-
-            if (match("ReservedWord", "else")) {
-                advance();
-                statement();
-            }
-            System.out.println("Finished if statement.");
+            trace(TraceLevel.RULES, "Parsing if statement...");
+            Token keyword = consume(TokenKind.RESERVED_WORD, Symbol.IF, "Expected 'if' keyword.");
+            consume(TokenKind.PUNCTUATION, Symbol.LPAREN, "Expected '(' after 'if'.");
+            int condition = parseCondition();
+            consume(TokenKind.PUNCTUATION, Symbol.RPAREN, "Expected ')' after condition.");
+            push(FRAME_IF_THEN, ast.add(Ast.IF, condition, Ast.NIL, Ast.NIL, keyword.line));
         }
 
         private void whileStatement() throws SyntaxError {
-            System.out.println("Parsing while statement...");
-            consume("ReservedWord", "while", "Expected 'while' keyword.");
-            consume("Punctuation", "(", "Expected '(' after 'while'.");
-            parseCondition();
-            consume("Punctuation", ")", "Expected ')' after condition.");
-            block();
+            trace(TraceLevel.RULES, "Parsing while statement...");
+            Token keyword = consume(TokenKind.RESERVED_WORD, Symbol.WHILE, "Expected 'while' keyword.");
+            consume(TokenKind.PUNCTUATION, Symbol.LPAREN, "Expected '(' after 'while'.");
+            int condition = parseCondition();
+            consume(TokenKind.PUNCTUATION, Symbol.RPAREN, "Expected ')' after condition.");
+            push(FRAME_WHILE, ast.add(Ast.WHILE, condition, Ast.NIL, Ast.NIL, keyword.line));
         }
 
         private void repeatStatement() throws SyntaxError {
-            System.out.println("Parsing repeat statement...");
-            consume("ReservedWord", "repeat", "Expected 'repeat' keyword.");
-            while (!check("ReservedWord", "until") && !isAtEnd()) {
-                statement();
-                maybeConsumeSemicolon();
-            }
-            consume("ReservedWord", "until", "Expected 'until' after repeat block.");
-            parseCondition();
-            System.out.println("Repeat statement parsed successfully.");
+            trace(TraceLevel.RULES, "Parsing repeat statement...");
+            Token keyword = consume(TokenKind.RESERVED_WORD, Symbol.REPEAT, "Expected 'repeat' keyword.");
+            push(FRAME_REPEAT, ast.add(Ast.REPEAT, Ast.NIL, Ast.NIL, Ast.NIL, keyword.line));
         }
 
-        private void callStatement() throws SyntaxError {
-            System.out.println("Parsing function call...");
-            consume("ReservedWord", "call", "Expected 'call' keyword.");
-            Token functionName = consume("Identifier", null, "Expected function name after 'call'.");
-            System.out.println("Function call: " + functionName.value);
+        private int callStatement() throws SyntaxError {
+            trace(TraceLevel.RULES, "Parsing function call...");
+            Token keyword = consume(TokenKind.RESERVED_WORD, Symbol.CALL, "Expected 'call' keyword.");
+            Token functionName = consume(TokenKind.IDENTIFIER, Symbol.NONE, "Expected function name after 'call'.");
+            if (tracing(TraceLevel.RULES)) {
+                trace(TraceLevel.RULES, "Function call: " + functionName.value);
+            }
+            return ast.add(Ast.CALL, ast.intern(functionName.value), Ast.NIL, Ast.NIL, keyword.line);
         }
 
-        private void exitStatement() throws SyntaxError {
-            System.out.println("Parsing exit statement...");
-            consume("ReservedWord", "exit", "Expected 'exit' keyword.");
+        private int exitStatement() throws SyntaxError {
+            trace(TraceLevel.RULES, "Parsing exit statement...");
+            Token keyword = consume(TokenKind.RESERVED_WORD, Symbol.EXIT, "Expected 'exit' keyword.");
             // You may want to consume a semicolon if your grammar says so
-            if (match("Punctuation", ";")) {
+            if (match(TokenKind.PUNCTUATION, Symbol.SEMICOLON)) {
                 advance();
-                System.out.println("Optional semicolon after 'exit' consumed.");
+                trace(TraceLevel.RULES, "Optional semicolon after 'exit' consumed.");
             }
-            System.out.println("Exit statement parsed successfully.");
+            trace(TraceLevel.RULES, "Exit statement parsed successfully.");
+            return ast.add(Ast.EXIT, Ast.NIL, Ast.NIL, Ast.NIL, keyword.line);
         }
 
-        private Token expression() throws SyntaxError {
-            System.out.println("Parsing expression...");
-            Token left = term();
+        private int expression() throws SyntaxError {
+            return operand(true);
+        }
 
-            while (match("Operator", "+", "-", "*", "/", "mod", "div")) {
-                Token operator = advance();
-                Token right = term();
-                left = new Token("Expression",
-                        "(" + left.value + " " + operator.value + " " + right.value + ")",
-                        left.line);
-            }
-            System.out.println("Parsed expression: " + left.value);
-            return left;
+        private int term() throws SyntaxError {
+            return operand(false);
         }
 
-        private Token term() throws SyntaxError {
-            if (match("Punctuation", "(")) {
-                consume("Punctuation", "(", "Expected '(' for nested expression.");
-                Token nested = expression();
-                consume("Punctuation", ")", "Expected ')' after nested expression.");
-                return new Token("Expression", "(" + nested.value + ")", nested.line);
+        /**
+         * Parses a term, or a whole expression when {@code operators} is set, with an
+         * explicit stack of open parentheses instead of recursion. Each parenthesis frame
+         * remembers the left operand and operator that were pending outside it.
+         */
+        private int operand(boolean operators) throws SyntaxError {
+            if (operators) {
+                trace(TraceLevel.RULES, "Parsing expression...");
             }
-            else if (match("Identifier")) {
-                return advance();
-            }
-            else if (match("Number")) {
-                return advance();
-            }
-            else {
-                throw error(peek(), "Expected identifier, number, or '(...)' in expression.");
+            int base = depth;
+            int left = Ast.NIL;
+            int op = Symbol.NONE;
+            while (true) {
+                if (match(TokenKind.PUNCTUATION, Symbol.LPAREN)) {
+                    consume(TokenKind.PUNCTUATION, Symbol.LPAREN, "Expected '(' for nested expression.");
+                    push(FRAME_PAREN, left);
+                    frameLasts[depth - 1] = op;
+                    trace(TraceLevel.RULES, "Parsing expression...");
+                    left = Ast.NIL;
+                    op = Symbol.NONE;
+                    continue;
+                }
+
+                int value;
+                if (match(TokenKind.IDENTIFIER)) {
+                    value = name(advance());
+                }
+                else if (match(TokenKind.NUMBER)) {
+                    value = number(advance());
+                }
+                else {
+                    throw error(peek(), "Expected identifier, number, or '(...)' in expression.");
+                }
+
+                while (true) {
+                    left = op == Symbol.NONE ? value : ast.add(Ast.BINARY_OP, op, left, value, ast.line(left));
+                    op = Symbol.NONE;
+                    if ((operators || depth > base) && match(TokenKind.OPERATOR,
+                            Symbol.PLUS, Symbol.MINUS, Symbol.STAR, Symbol.SLASH, Symbol.MOD, Symbol.DIV)) {
+                        op = advance().symbol;
+                        break;
+                    }
+                    if (depth > base) {
+                        consume(TokenKind.PUNCTUATION, Symbol.RPAREN, "Expected ')' after nested expression.");
+                    }
+                    if ((operators || depth > base) && tracing(TraceLevel.RULES)) {
+                        trace(TraceLevel.RULES, "Parsed expression: " + ast.render(left));
+                    }
+                    if (depth == base) {
+                        return left;
+                    }
+                    value = left;
+                    left = pop();
+                    op = frameLasts[depth];
+                }
             }
         }
 
-        private void parseCondition() throws SyntaxError {
-            System.out.println("Parsing condition...");
+        private int parseCondition() throws SyntaxError {
+            trace(TraceLevel.RULES, "Parsing condition...");
 
-            Token left = term();
+            int left = term();
 
-            if (!match("Operator", "=", "=!", "<", "=<", ">", "=>")) {
+            if (!match(TokenKind.OPERATOR, Symbol.EQ, Symbol.NE, Symbol.LT, Symbol.LE, Symbol.GT, Symbol.GE)) {
                 throw error(peek(), "Expected relational operator in condition.");
             }
             Token op = advance();
 
-            Token right = term();
+            int right = term();
 
-            System.out.println("Parsed condition: " + left.value + " " + op.value + " " + right.value);
+            if (tracing(TraceLevel.RULES)) {
+                trace(TraceLevel.RULES, "Parsed condition: " + ast.render(left) + " " + op.value + " " + ast.render(right));
+            }
+            return ast.add(Ast.CONDITION, op.symbol, left, right, op.line);
         }
 
-        private boolean match(String type, String... values) {
-            if (!check(type)) return false;
-            if (values == null || values.length == 0) return true;
-            for (String value : values) {
-                if (peek().value.equals(value)) return true;
-            }
-            return false;
+        private int name(Token token) {
+            return ast.add(Ast.NAME, ast.intern(token.value), Ast.NIL, Ast.NIL, token.line);
+        }
+
+        private int number(Token token) {
+            return ast.add(Ast.NUMBER, ast.intern(token.value), Ast.NIL, Ast.NIL, token.line);
         }
 
-        private boolean check(String type, String... values) {
-            if (isAtEnd()) return false;
-            Token token = peek();
-            if (!token.type.equals(type)) return false;
-            if (values.length == 0 || values[0] == null) return true;
-            for (String value : values) {
-                if (token.value.equals(value)) return true;
+        private boolean match(byte kind, int... symbols) throws SyntaxError {
+            if (tokens.kind() != kind) return false;
+            if (symbols.length == 0) return true;
+            int symbol = tokens.symbol();
+            for (int candidate : symbols) {
+                if (candidate == symbol) return true;
             }
             return false;
         }
 
-        private Token consume(String type, String value, String errorMessage) throws SyntaxError {
-            Token currentToken = peek();
-            if (!check(type) || (value != null && !currentToken.value.equals(value))) {
-                throw error(currentToken, errorMessage);
+        private boolean check(byte kind, int symbol) throws SyntaxError {
+            return tokens.kind() == kind && tokens.symbol() == symbol;
+        }
+
+        private Token consume(byte kind, int symbol, String errorMessage) throws SyntaxError {
+            if (tokens.kind() != kind || (symbol != Symbol.NONE && tokens.symbol() != symbol)) {
+                String expected = symbol != Symbol.NONE ? "'" + Symbol.text(symbol) + "'" : TokenKind.name(kind);
+                throw error(peek(), errorMessage != null ? errorMessage : "Expected " + expected + ".", expected);
             }
             return advance();
         }
 
-        private Token advance() {
-            if (!isAtEnd()) {
-                return tokens.get(current++);
+        private Token advance() throws SyntaxError {
+            Token token = tokens.advance();
+            if (token == null) {
+                return new Token("EOF", "", tokens.position());
+            }
+            lastLine = token.line;
+            if (tracing(TraceLevel.TOKENS)) {
+                trace(TraceLevel.TOKENS, "Consumed " + token);
+            }
+            return token;
+        }
+
+        private int measure(int phase, Rule rule) throws SyntaxError {
+            if (metrics == null) {
+                return rule.parse();
+            }
+            metrics.begin(phase, tokens.position(), lastLine);
+            try {
+                return rule.parse();
+            } finally {
+                metrics.end(phase, tokens.position(), lastLine);
             }
-            return new Token("EOF", "", current);
         }
 
-        private boolean isAtEnd() {
-            return current >= tokens.size();
+        private boolean isAtEnd() throws SyntaxError {
+            return tokens.isAtEnd();
         }
 
-        private Token peek() {
-            return isAtEnd() ? new Token("EOF", "", current) : tokens.get(current);
+        private Token peek() throws SyntaxError {
+            Token token = tokens.peek();
+            return token != null ? token : new Token("EOF", "", tokens.position());
+        }
+
+        private boolean tracing(TraceLevel level) {
+            return level.ordinal() <= traceLevel;
+        }
+
+        private void trace(TraceLevel level, String message) {
+            if (tracing(level)) {
+                listener.trace(level, message);
+            }
         }
 
         private SyntaxError error(Token token, String message) {
+            return error(token, message, null);
+        }
+
+        private SyntaxError error(Token token, String message, String expected) {
             return new SyntaxError(
                     message + " at line " + token.line + ", near '" + token.value + "'. " +
-                            "Current block depth: "
+                            "Current block depth: " + blockDepth,
+                    token.line, token.column, expected, token.value
             );
         }
     }
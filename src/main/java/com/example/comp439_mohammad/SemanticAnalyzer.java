@@ -0,0 +1,178 @@
+package com.example.comp439_mohammad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks names in a parsed program in one pass over the {@link Ast}: every name used
+ * must be declared in an enclosing scope before its use, nothing may be declared twice
+ * in one scope, only variables can be assigned or read into, and {@code call} must name
+ * a function. Functions are visible from their own body on, so they may recurse but
+ * cannot call functions declared after them. Every {@code function} and {@code newb}
+ * opens a scope.
+ */
+final class SemanticAnalyzer {
+
+    // Stack entries below 0 are markers rather than nodes.
+    private static final int EXIT_SCOPE = -2;
+
+    private final Ast ast;
+    private final SymbolTable symbols;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    // Set when checking an editor buffer, whose tree lines may be out of date.
+    private IncrementalDocument document;
+
+    private int[] stack = new int[64];
+    private int top;
+
+    SemanticAnalyzer(Ast ast) {
+        this.ast = ast;
+        this.symbols = new SymbolTable(ast.stringCount());
+    }
+
+    static List<Diagnostic> analyze(Ast ast) {
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(ast);
+        analyzer.run();
+        return analyzer.diagnostics;
+    }
+
+    /**
+     * Checks the tree of an editor buffer, reporting lines as they are now rather than as
+     * they were when each part was parsed.
+     */
+    static List<Diagnostic> analyze(IncrementalDocument document) {
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(document.ast());
+        analyzer.document = document;
+        analyzer.run();
+        return analyzer.diagnostics;
+    }
+
+    List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    void run() {
+        int program = ast.root();
+        if (program == Ast.NIL) return;
+        symbols.enterScope();
+        push(EXIT_SCOPE);
+        push(ast.c(program));
+        push(ast.b(program));
+        push(ast.a(program));
+        while (top > 0) {
+            int node = stack[--top];
+            if (node == EXIT_SCOPE) {
+                symbols.exitScope();
+            } else if (node != Ast.NIL) {
+                // Siblings come after this node and everything below it.
+                push(ast.next(node));
+                visit(node);
+            }
+        }
+    }
+
+    private void visit(int node) {
+        switch (ast.kind(node)) {
+            case Ast.CONST_DECL:
+                declare(ast.a(node), SymbolTable.CONSTANT, node);
+                break;
+            case Ast.VAR_DECL:
+                for (int name = ast.b(node); name != Ast.NIL; name = ast.next(name)) {
+                    declare(ast.a(name), SymbolTable.VARIABLE, name);
+                }
+                break;
+            case Ast.FUNCTION_DECL:
+                declare(ast.a(node), SymbolTable.FUNCTION, node);
+                symbols.enterScope();
+                push(EXIT_SCOPE);
+                push(ast.c(node));
+                push(ast.b(node));
+                break;
+            case Ast.BLOCK:
+                symbols.enterScope();
+                push(EXIT_SCOPE);
+                push(ast.a(node));
+                break;
+            case Ast.IF:
+                push(ast.c(node));
+                push(ast.b(node));
+                push(ast.a(node));
+                break;
+            case Ast.WHILE:
+                push(ast.b(node));
+                push(ast.a(node));
+                break;
+            case Ast.REPEAT:
+                push(ast.b(node));
+                push(ast.a(node));
+                break;
+            case Ast.ASSIGN:
+                target(node, "Assignment to");
+                push(ast.b(node));
+                break;
+            case Ast.CIN:
+                target(node, "Reading into");
+                break;
+            case Ast.CALL: {
+                int binding = symbols.lookup(ast.a(node));
+                if (binding == SymbolTable.NOT_FOUND) {
+                    report(node, "Call to undeclared function '" + ast.name(node) + "'.");
+                } else if (symbols.kind(binding) != SymbolTable.FUNCTION) {
+                    report(node, "'" + ast.name(node) + "' is not a function.");
+                }
+                break;
+            }
+            case Ast.COUT:
+                push(ast.a(node));
+                break;
+            case Ast.BINARY_OP:
+            case Ast.CONDITION:
+                push(ast.c(node));
+                push(ast.b(node));
+                break;
+            case Ast.NAME: {
+                int binding = symbols.lookup(ast.a(node));
+                if (binding == SymbolTable.NOT_FOUND) {
+                    report(node, "Undeclared name '" + ast.name(node) + "'.");
+                } else if (symbols.kind(binding) == SymbolTable.FUNCTION) {
+                    report(node, "Function '" + ast.name(node) + "' used as a value.");
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private void declare(int name, byte kind, int node) {
+        int existing = symbols.declare(name, kind, node);
+        if (existing != SymbolTable.NOT_FOUND) {
+            report(node, "Duplicate declaration of '" + ast.string(name) + "', first declared at line "
+                    + ast.line(symbols.node(existing)) + ".");
+        }
+    }
+
+    private void target(int node, String what) {
+        int binding = symbols.lookup(ast.a(node));
+        if (binding == SymbolTable.NOT_FOUND) {
+            report(node, what + " undeclared variable '" + ast.name(node) + "'.");
+        } else if (symbols.kind(binding) == SymbolTable.CONSTANT) {
+            report(node, what + " constant '" + ast.name(node) + "'.");
+        } else if (symbols.kind(binding) == SymbolTable.FUNCTION) {
+            report(node, what + " function '" + ast.name(node) + "'.");
+        }
+    }
+
+    private void report(int node, String message) {
+        int line = document != null ? document.line(node) : ast.line(node);
+        diagnostics.add(new Diagnostic(line, 0, null, ast.name(node), message));
+    }
+
+    private void push(int entry) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+        }
+        stack[top++] = entry;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.comp439_mohammad;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Positions in a scanned source: one table of line start offsets over the original
+ * text, so a token needs nothing but its start offset and length. Its line and column
+ * are found by binary search when asked for, and its text is sliced out of the source
+ * only then. {@link #excerpt} quotes a line with a caret under a span, for diagnostics.
+ *
+ * <p>Lines are numbered from 1 and columns from 1, as the scanner numbers them.
+ */
+final class SourceMap {
+
+    private final CharSequence source;
+    private int[] lineStarts;
+    private int lines;
+
+    SourceMap(CharSequence source) {
+        this(source, 64);
+    }
+
+    SourceMap(CharSequence source, int capacity) {
+        this.source = source;
+        this.lineStarts = new int[Math.max(1, capacity)];
+    }
+
+    static SourceMap of(CharSequence source) {
+        try {
+            return of(new TextLineReader(source), source);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps a whole file; like {@link TokenBuffer#scan(Path)}, only files up to 2 GB.
+     */
+    static SourceMap of(Path path) throws IOException {
+        if (Files.size(path) > Integer.MAX_VALUE) {
+            throw new IOException("File too large for a source map: " + path);
+        }
+        try (MappedLineReader reader = new MappedLineReader(path, Integer.MAX_VALUE)) {
+            return of(reader, null);
+        }
+    }
+
+    private static SourceMap of(LineReader reader, CharSequence source) throws IOException {
+        SourceMap map = null;
+        while (reader.nextLine()) {
+            if (map == null) {
+                map = new SourceMap(reader.text());
+            }
+            map.addLine(reader.lineStart());
+        }
+        return map != null ? map : new SourceMap(source != null ? source : "");
+    }
+
+    /**
+     * Adds the next line, which starts at {@code start}; lines must be added in order.
+     */
+    void addLine(int start) {
+        if (lines == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+        }
+        lineStarts[lines++] = start;
+    }
+
+    CharSequence text() {
+        return source;
+    }
+
+    int lineCount() {
+        return lines;
+    }
+
+    int lineStart(int line) {
+        return lineStarts[line - 1];
+    }
+
+    /**
+     * Offset just past the last character of {@code line}, before its line break.
+     */
+    int lineEnd(int line) {
+        int end = line < lines ? lineStarts[line] : source.length();
+        int offset = lineStarts[line - 1];
+        while (offset < end && source.charAt(offset) != '\n' && source.charAt(offset) != '\r') {
+            offset++;
+        }
+        return offset;
+    }
+
+    /**
+     * Line holding {@code offset}, or 0 if it comes before the first line.
+     */
+    int line(int offset) {
+        int low = 0;
+        int high = lines - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (lineStarts[middle] <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Like {@link #line(int)}, but first tries {@code hint} and the line after it, which
+     * is where a reader going through the source in order almost always is.
+     */
+    int line(int offset, int hint) {
+        if (hint >= 1 && hint <= lines && lineStarts[hint - 1] <= offset) {
+            if (hint == lines || offset < lineStarts[hint]) return hint;
+            if (hint + 1 == lines || offset < lineStarts[hint + 1]) return hint + 1;
+        }
+        return line(offset);
+    }
+
+    int column(int offset) {
+        return column(offset, line(offset));
+    }
+
+    int column(int offset, int line) {
+        return offset - lineStarts[line - 1] + 1;
+    }
+
+    String slice(int start, int length) {
+        return source.subSequence(start, start + length).toString();
+    }
+
+    /**
+     * The text of {@code line} and, under it, carets from {@code column} for {@code length}
+     * characters, each prefixed with a gutter holding the line number:
+     * <pre>
+     *   12 | x := y + ;
+     *      |          ^
+     * </pre>
+     * A column of 0 underlines the whole line. Tabs before the span are kept so the
+     * carets stay aligned. Returns an empty string for a line the map does not have.
+     */
+    String excerpt(int line, int column, int length) {
+        if (line < 1 || line > lines) {
+            return "";
+        }
+        int start = lineStarts[line - 1];
+        int end = lineEnd(line);
+        String text = source.subSequence(start, end).toString();
+        int from;
+        int to;
+        if (column <= 0) {
+            from = 0;
+            while (from < text.length() && Character.isWhitespace(text.charAt(from))) from++;
+            to = text.length();
+            while (to > from && Character.isWhitespace(text.charAt(to - 1))) to--;
+        } else {
+            // The column counts source characters; the text may have decoded to fewer.
+            int offset = Math.min(start + column - 1, end);
+            from = source.subSequence(start, offset).toString().length();
+            to = Math.min(text.length(), from + Math.max(1, length));
+        }
+
+        String number = Integer.toString(line);
+        StringBuilder excerpt = new StringBuilder(2 * (number.length() + text.length()) + 16);
+        excerpt.append(' ').append(number).append(" | ").append(text).append('\n');
+        excerpt.append(" ".repeat(number.length() + 1)).append(" | ");
+        for (int i = 0; i < from; i++) {
+            excerpt.append(text.charAt(i) == '\t' ? '\t' : ' ');
+        }
+        excerpt.append("^".repeat(Math.max(1, to - from))).append('\n');
+        return excerpt.toString();
+    }
+}
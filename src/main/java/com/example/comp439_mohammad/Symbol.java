@@ -0,0 +1,93 @@
+package com.example.comp439_mohammad;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Small integer codes for the fixed vocabulary of the language: reserved words,
+ * operators and punctuation. {@link #NONE} marks identifiers and numbers.
+ */
+final class Symbol {
+
+    static final int NONE = 0;
+
+    static final int INCLUDE = 1;
+    static final int CONST = 2;
+    static final int VAR = 3;
+    static final int FUNCTION = 4;
+    static final int NEWB = 5;
+    static final int ENDB = 6;
+    static final int IF = 7;
+    static final int ELSE = 8;
+    static final int WHILE = 9;
+    static final int REPEAT = 10;
+    static final int UNTIL = 11;
+    static final int CALL = 12;
+    static final int CIN = 13;
+    static final int COUT = 14;
+    static final int EXIT = 15;
+
+    static final int ASSIGN = 16;
+    static final int PLUS = 17;
+    static final int MINUS = 18;
+    static final int STAR = 19;
+    static final int SLASH = 20;
+    static final int MOD = 21;
+    static final int DIV = 22;
+    static final int EQ = 23;
+    static final int GT = 24;
+    static final int LT = 25;
+    static final int GE = 26;
+    static final int LE = 27;
+    static final int NE = 28;
+
+    static final int LPAREN = 29;
+    static final int RPAREN = 30;
+    static final int LBRACE = 31;
+    static final int RBRACE = 32;
+    static final int SEMICOLON = 33;
+    static final int COMMA = 34;
+
+    static final int COUNT = 35;
+
+    static final int FIRST_RESERVED = INCLUDE;
+    static final int LAST_RESERVED = EXIT;
+    static final int FIRST_OPERATOR = ASSIGN;
+    static final int LAST_OPERATOR = NE;
+
+    private static final String[] TEXT = {
+            "",
+            "#include", "const", "var", "function", "newb", "endb", "if", "else",
+            "while", "repeat", "until", "call", "cin", "cout", "exit",
+            ":=", "+", "-", "*", "/", "mod", "div", "=", ">", "<", "=>", "=<", "=!",
+            "(", ")", "{", "}", ";", ","
+    };
+
+    private Symbol() {
+    }
+
+    static String text(int symbol) {
+        return TEXT[symbol];
+    }
+
+    static Set<String> texts(int first, int last) {
+        Set<String> texts = new LinkedHashSet<>();
+        for (int symbol = first; symbol <= last; symbol++) {
+            texts.add(TEXT[symbol]);
+        }
+        return Collections.unmodifiableSet(texts);
+    }
+
+    static int of(String text) {
+        return Lexicon.lookup(text);
+    }
+
+    static boolean isReserved(int symbol) {
+        return symbol >= FIRST_RESERVED && symbol <= LAST_RESERVED;
+    }
+
+    static boolean isOperator(int symbol) {
+        return symbol >= FIRST_OPERATOR && symbol <= LAST_OPERATOR;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.comp439_mohammad;
+
+import java.util.Arrays;
+
+/**
+ * Block-scoped symbol table keyed by {@link Ast} string ids. An open-addressing hash
+ * table maps each name to its innermost binding; bindings live in parallel arrays and
+ * remember the binding they shadow, so leaving a scope just walks back over the
+ * bindings made in it and restores what they hid. Nothing is allocated per lookup.
+ */
+final class SymbolTable {
+
+    static final byte CONSTANT = 0;
+    static final byte VARIABLE = 1;
+    static final byte FUNCTION = 2;
+
+    static final int NOT_FOUND = -1;
+
+    // Hash table: name id -> innermost binding, or NOT_FOUND once that binding went out of scope.
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int used;
+
+    private int[] names = new int[64];
+    private byte[] kinds = new byte[64];
+    private int[] nodes = new int[64];
+    private int[] shadowed = new int[64];
+    private int[] scopes = new int[64];
+    private int bindings;
+
+    // Binding count at the start of each open scope.
+    private int[] scopeStarts = new int[16];
+    private int depth;
+
+    SymbolTable() {
+        this(64);
+    }
+
+    SymbolTable(int expectedNames) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedNames * 2) - 1) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, -1);
+        mask = capacity - 1;
+    }
+
+    void enterScope() {
+        if (depth == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+        }
+        scopeStarts[depth++] = bindings;
+    }
+
+    void exitScope() {
+        int start = scopeStarts[--depth];
+        while (bindings > start) {
+            bindings--;
+            values[slot(names[bindings])] = shadowed[bindings];
+        }
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    /**
+     * Declares {@code name} in the current scope. Returns {@link #NOT_FOUND} on success, or
+     * the existing binding if the name is already declared in this scope.
+     */
+    int declare(int name, byte kind, int node) {
+        int slot = slot(name);
+        if (keys[slot] != name) {
+            keys[slot] = name;
+            values[slot] = NOT_FOUND;
+            if (++used * 2 > keys.length) {
+                rehash();
+                slot = slot(name);
+            }
+        }
+        int current = values[slot];
+        if (current != NOT_FOUND && scopes[current] == depth) {
+            return current;
+        }
+        if (bindings == names.length) {
+            int capacity = bindings * 2;
+            names = Arrays.copyOf(names, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            nodes = Arrays.copyOf(nodes, capacity);
+            shadowed = Arrays.copyOf(shadowed, capacity);
+            scopes = Arrays.copyOf(scopes, capacity);
+        }
+        names[bindings] = name;
+        kinds[bindings] = kind;
+        nodes[bindings] = node;
+        shadowed[bindings] = current;
+        scopes[bindings] = depth;
+        values[slot] = bindings++;
+        return NOT_FOUND;
+    }
+
+    /**
+     * Innermost visible binding of {@code name}, or {@link #NOT_FOUND}.
+     */
+    int lookup(int name) {
+        int slot = slot(name);
+        return keys[slot] == name ? values[slot] : NOT_FOUND;
+    }
+
+    byte kind(int binding) {
+        return kinds[binding];
+    }
+
+    /**
+     * The declaring node: a CONST_DECL, a NAME inside a VAR_DECL, or a FUNCTION_DECL.
+     */
+    int node(int binding) {
+        return nodes[binding];
+    }
+
+    int scope(int binding) {
+        return scopes[binding];
+    }
+
+    /**
+     * Slot holding {@code name}, or the empty slot where it would go.
+     */
+    private int slot(int name) {
+        int hash = name * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (keys[slot] != name && keys[slot] != -1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, -1);
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != -1) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
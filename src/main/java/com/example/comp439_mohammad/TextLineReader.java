@@ -0,0 +1,61 @@
+package com.example.comp439_mohammad;
+
+/**
+ * {@link LineReader} over text that is already in memory, such as an editor buffer.
+ */
+final class TextLineReader implements LineReader {
+
+    private final CharSequence text;
+    private int cursor;
+    private int lineStart;
+    private int lineEnd;
+    private int lineNumber;
+
+    TextLineReader(CharSequence text) {
+        this.text = text;
+    }
+
+    @Override
+    public boolean nextLine() {
+        int length = text.length();
+        if (cursor >= length) {
+            return false;
+        }
+        int eol = cursor;
+        while (eol < length && text.charAt(eol) != '\n' && text.charAt(eol) != '\r') {
+            eol++;
+        }
+        lineStart = cursor;
+        lineEnd = eol;
+        lineNumber++;
+        if (eol < length) {
+            eol += text.charAt(eol) == '\r' && eol + 1 < length && text.charAt(eol + 1) == '\n' ? 2 : 1;
+        }
+        cursor = eol;
+        return true;
+    }
+
+    @Override
+    public CharSequence text() {
+        return text;
+    }
+
+    @Override
+    public int lineStart() {
+        return lineStart;
+    }
+
+    @Override
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    @Override
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() {
+    }
+}
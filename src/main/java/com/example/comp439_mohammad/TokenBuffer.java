@@ -0,0 +1,190 @@
+package com.example.comp439_mohammad;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays token storage: one entry per token in parallel primitive arrays
+ * (kind, symbol, start offset, length) over the scanned source. Lines and columns come
+ * from the buffer's {@link SourceMap}, so they cost nothing per token. Token text is
+ * only sliced out of the source when asked for, and reserved words, operators and
+ * punctuation never are, since their {@link Symbol} already identifies them.
+ */
+final class TokenBuffer implements TokenSink {
+
+    private SourceMap map = new SourceMap("");
+    private byte[] kinds;
+    private byte[] symbols;
+    private int[] starts;
+    private int[] lengths;
+    private int size;
+
+    TokenBuffer() {
+        this(1024);
+    }
+
+    TokenBuffer(int capacity) {
+        kinds = new byte[capacity];
+        symbols = new byte[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+    }
+
+    static TokenBuffer scan(CharSequence source) throws ScannerLexer.SyntaxError {
+        TokenBuffer buffer = new TokenBuffer(Math.max(16, source.length() / 4));
+        buffer.map = new SourceMap(source);
+        buffer.scanAll(new TextLineReader(source));
+        return buffer;
+    }
+
+    /**
+     * Scans a whole file into a buffer backed by a single mapping of the file.
+     * Files over 2 GB have to go through {@link ScannerLexer#open(String)} instead.
+     */
+    static TokenBuffer scan(Path path) throws IOException, ScannerLexer.SyntaxError {
+        long size = Files.size(path);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("File too large for a token buffer: " + path);
+        }
+        TokenBuffer buffer = new TokenBuffer((int) Math.max(16, size / 4));
+        try (MappedLineReader reader = new MappedLineReader(path, Integer.MAX_VALUE)) {
+            buffer.scanAll(reader);
+        }
+        return buffer;
+    }
+
+    private void scanAll(LineReader reader) throws ScannerLexer.SyntaxError {
+        try {
+            while (reader.nextLine()) {
+                if (reader.text() != map.text()) {
+                    map = new SourceMap(reader.text(), Math.max(64, reader.text().length() / 32));
+                }
+                map.addLine(reader.lineStart());
+                DfaScanner.scanLine(reader.text(), reader.lineStart(), reader.lineEnd(), reader.lineNumber(), this);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void token(CharSequence src, byte kind, int symbol, int start, int end, int line, int column) {
+        if (size == kinds.length) {
+            grow();
+        }
+        kinds[size] = kind;
+        symbols[size] = (byte) symbol;
+        starts[size] = start;
+        lengths[size] = end - start;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, size * 2);
+        kinds = Arrays.copyOf(kinds, capacity);
+        symbols = Arrays.copyOf(symbols, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte kind(int index) {
+        return kinds[index];
+    }
+
+    int symbol(int index) {
+        return symbols[index];
+    }
+
+    int start(int index) {
+        return starts[index];
+    }
+
+    int length(int index) {
+        return lengths[index];
+    }
+
+    int line(int index) {
+        return map.line(starts[index]);
+    }
+
+    int column(int index) {
+        return map.column(starts[index]);
+    }
+
+    SourceMap sourceMap() {
+        return map;
+    }
+
+    String text(int index) {
+        int symbol = symbols[index];
+        if (symbol != Symbol.NONE) {
+            return Symbol.text(symbol);
+        }
+        return map.slice(starts[index], lengths[index]);
+    }
+
+    ScannerLexer.Token token(int index) {
+        return token(index, map.line(starts[index]));
+    }
+
+    private ScannerLexer.Token token(int index, int line) {
+        return new ScannerLexer.Token(kinds[index], symbols[index], text(index), line, map.column(starts[index], line));
+    }
+
+    TokenStream stream() {
+        return new Cursor();
+    }
+
+    /**
+     * Reads kinds and symbols straight from the arrays; Token objects are only
+     * created when the parser asks for one.
+     */
+    private final class Cursor implements TokenStream {
+        private int current;
+        // Line of the last token created, where the next one almost always is too.
+        private int line;
+
+        @Override
+        public ScannerLexer.Token peek(int offset) {
+            int index = current + offset;
+            return index < size ? token(index) : null;
+        }
+
+        @Override
+        public ScannerLexer.Token advance() {
+            return current < size ? token(current++) : null;
+        }
+
+        private ScannerLexer.Token token(int index) {
+            line = map.line(starts[index], line);
+            return TokenBuffer.this.token(index, line);
+        }
+
+        @Override
+        public int position() {
+            return current;
+        }
+
+        @Override
+        public byte kind() {
+            return current < size ? kinds[current] : TokenKind.EOF;
+        }
+
+        @Override
+        public int symbol() {
+            return current < size ? symbols[current] : Symbol.NONE;
+        }
+
+        @Override
+        public boolean isAtEnd() {
+            return current >= size;
+        }
+    }
+}
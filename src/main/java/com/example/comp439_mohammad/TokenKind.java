@@ -0,0 +1,33 @@
+package com.example.comp439_mohammad;
+
+/**
+ * Token kinds as small integers, so the parser compares bytes instead of type names.
+ * {@link #name(byte)} gives back the names used by {@link ScannerLexer.Token#type}.
+ */
+final class TokenKind {
+
+    static final byte RESERVED_WORD = 0;
+    static final byte OPERATOR = 1;
+    static final byte NUMBER = 2;
+    static final byte IDENTIFIER = 3;
+    static final byte PUNCTUATION = 4;
+    static final byte EOF = 5;
+
+    private static final String[] NAMES = {
+            "ReservedWord", "Operator", "Number", "Identifier", "Punctuation", "EOF"
+    };
+
+    private TokenKind() {
+    }
+
+    static String name(byte kind) {
+        return NAMES[kind];
+    }
+
+    static byte of(String name) {
+        for (byte kind = 0; kind < NAMES.length; kind++) {
+            if (NAMES[kind].equals(name)) return kind;
+        }
+        throw new IllegalArgumentException("Unknown token type: " + name);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.comp439_mohammad;
+
+import java.util.function.Consumer;
+
+/**
+ * Receives tokens from {@link DfaScanner} as ranges over the scanned text, so the
+ * receiver decides whether a token is ever turned into a {@link ScannerLexer.Token}.
+ */
+interface TokenSink {
+
+    /**
+     * Reports the token {@code src[start, end)}; {@code column} is 1-based within its line.
+     */
+    void token(CharSequence src, byte kind, int symbol, int start, int end, int line, int column);
+
+    static TokenSink of(Consumer<? super ScannerLexer.Token> consumer) {
+        return (src, kind, symbol, start, end, line, column) -> {
+            String value = symbol != Symbol.NONE ? Symbol.text(symbol) : src.subSequence(start, end).toString();
+            consumer.accept(new ScannerLexer.Token(kind, symbol, value, line, column));
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.comp439_mohammad;
+
+/**
+ * Pull-based source of tokens for the {@link ScannerLexer.Parser}. Implementations
+ * only need to buffer {@link #LOOKAHEAD} tokens ahead of the cursor, so tokens can
+ * be produced lazily while the parser runs.
+ */
+interface TokenStream {
+
+    int LOOKAHEAD = 4;
+
+    /**
+     * Returns the token {@code offset} positions ahead of the cursor without consuming
+     * it, or {@code null} past the end of input. {@code offset} must be below {@link #LOOKAHEAD}.
+     */
+    ScannerLexer.Token peek(int offset) throws ScannerLexer.SyntaxError;
+
+    /**
+     * Consumes and returns the token under the cursor, or {@code null} at the end of input.
+     */
+    ScannerLexer.Token advance() throws ScannerLexer.SyntaxError;
+
+    /**
+     * Number of tokens consumed so far.
+     */
+    int position();
+
+    default ScannerLexer.Token peek() throws ScannerLexer.SyntaxError {
+        return peek(0);
+    }
+
+    /**
+     * {@link TokenKind} of the token under the cursor, {@link TokenKind#EOF} at the end of input.
+     */
+    default byte kind() throws ScannerLexer.SyntaxError {
+        ScannerLexer.Token token = peek(0);
+        return token != null ? token.kind : TokenKind.EOF;
+    }
+
+    /**
+     * {@link Symbol} code of the token under the cursor, {@link Symbol#NONE} for names,
+     * numbers and the end of input.
+     */
+    default int symbol() throws ScannerLexer.SyntaxError {
+        ScannerLexer.Token token = peek(0);
+        return token != null ? token.symbol : Symbol.NONE;
+    }
+
+    default boolean isAtEnd() throws ScannerLexer.SyntaxError {
+        return peek(0) == null;
+    }
+}
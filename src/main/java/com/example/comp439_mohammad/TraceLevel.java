@@ -0,0 +1,16 @@
+package com.example.comp439_mohammad;
+
+/**
+ * How much the {@link ScannerLexer.Parser} reports to its {@link ParseListener}.
+ * Each level includes everything reported by the levels before it.
+ */
+enum TraceLevel {
+    /** Nothing at all; the parser builds no trace messages. */
+    OFF,
+    /** Start and end of the program. */
+    SUMMARY,
+    /** Every grammar rule, as the parser always used to print. */
+    RULES,
+    /** Rules plus every token consumed. */
+    TOKENS
+}
@@ -0,0 +1,188 @@
+package com.example.comp439_mohammad;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Runs {@link Bytecode} in a single dispatch loop. Values are doubles on a primitive
+ * operand stack sized by the compiler; globals live in one array and each call gets a
+ * frame of locals in another, both indexed by the slots the compiler assigned. Nothing
+ * is boxed or looked up by name while running. Variables start at 0.
+ *
+ * <p>{@code /} divides as reals; {@code div} and {@code mod} truncate both operands to
+ * whole numbers first and fail on a zero divisor.
+ */
+final class VirtualMachine {
+
+    static final class RuntimeError extends Exception {
+        final int line;
+
+        RuntimeError(String message, int line) {
+            super(message);
+            this.line = line;
+        }
+    }
+
+    private final Bytecode program;
+    private final ProgramIo io;
+    private int maxCallDepth = 1 << 16;
+    private long executed;
+
+    VirtualMachine(Bytecode program, ProgramIo io) {
+        this.program = program;
+        this.io = io;
+    }
+
+    void setMaxCallDepth(int maxCallDepth) {
+        this.maxCallDepth = maxCallDepth;
+    }
+
+    /**
+     * Instructions executed by the last {@link #run()}.
+     */
+    long executed() {
+        return executed;
+    }
+
+    void run() throws RuntimeError, IOException {
+        final int[] code = program.code();
+        final double[] constants = program.constants();
+        final int[] entries = program.functionEntries();
+        final int[] frameSizes = program.functionLocals();
+        final double[] globals = new double[program.globals()];
+        final double[] stack = new double[program.maxStack() + 1];
+        double[] locals = new double[64];
+        int[] returnPcs = new int[16];
+        int[] framePointers = new int[16];
+
+        int pc = program.mainEntry();
+        int sp = 0;
+        int fp = 0;
+        int localsTop = 0;
+        int calls = 0;
+        long count = 0;
+        int at = pc;
+        try {
+            while (true) {
+                at = pc;
+                count++;
+                switch (code[pc++]) {
+                    case Opcode.PUSH:
+                        stack[sp++] = constants[code[pc++]];
+                        break;
+                    case Opcode.LOAD_GLOBAL:
+                        stack[sp++] = globals[code[pc++]];
+                        break;
+                    case Opcode.STORE_GLOBAL:
+                        globals[code[pc++]] = stack[--sp];
+                        break;
+                    case Opcode.LOAD_LOCAL:
+                        stack[sp++] = locals[fp + code[pc++]];
+                        break;
+                    case Opcode.STORE_LOCAL:
+                        locals[fp + code[pc++]] = stack[--sp];
+                        break;
+                    case Opcode.ADD:
+                        sp--;
+                        stack[sp - 1] += stack[sp];
+                        break;
+                    case Opcode.SUB:
+                        sp--;
+                        stack[sp - 1] -= stack[sp];
+                        break;
+                    case Opcode.MUL:
+                        sp--;
+                        stack[sp - 1] *= stack[sp];
+                        break;
+                    case Opcode.DIV:
+                        sp--;
+                        stack[sp - 1] /= stack[sp];
+                        break;
+                    case Opcode.IDIV:
+                        sp--;
+                        stack[sp - 1] = (long) stack[sp - 1] / (long) stack[sp];
+                        break;
+                    case Opcode.MOD:
+                        sp--;
+                        stack[sp - 1] = (long) stack[sp - 1] % (long) stack[sp];
+                        break;
+                    case Opcode.JUMP:
+                        pc = code[pc];
+                        break;
+                    case Opcode.JUMP_IF_EQ:
+                        sp -= 2;
+                        pc = stack[sp] == stack[sp + 1] ? code[pc] : pc + 1;
+                        break;
+                    case Opcode.JUMP_IF_NE:
+                        sp -= 2;
+                        pc = stack[sp] != stack[sp + 1] ? code[pc] : pc + 1;
+                        break;
+                    case Opcode.JUMP_IF_LT:
+                        sp -= 2;
+                        pc = stack[sp] < stack[sp + 1] ? code[pc] : pc + 1;
+                        break;
+                    case Opcode.JUMP_IF_LE:
+                        sp -= 2;
+                        pc = stack[sp] <= stack[sp + 1] ? code[pc] : pc + 1;
+                        break;
+                    case Opcode.JUMP_IF_GT:
+                        sp -= 2;
+                        pc = stack[sp] > stack[sp + 1] ? code[pc] : pc + 1;
+                        break;
+                    case Opcode.JUMP_IF_GE:
+                        sp -= 2;
+                        pc = stack[sp] >= stack[sp + 1] ? code[pc] : pc + 1;
+                        break;
+                    case Opcode.CALL: {
+                        int function = code[pc++];
+                        if (calls == maxCallDepth) {
+                            throw new RuntimeError("Call stack overflow (" + calls + " calls deep)", program.line(at));
+                        }
+                        if (calls == returnPcs.length) {
+                            returnPcs = Arrays.copyOf(returnPcs, calls * 2);
+                            framePointers = Arrays.copyOf(framePointers, calls * 2);
+                        }
+                        returnPcs[calls] = pc;
+                        framePointers[calls++] = fp;
+                        fp = localsTop;
+                        localsTop += frameSizes[function];
+                        if (localsTop > locals.length) {
+                            locals = Arrays.copyOf(locals, Math.max(localsTop, locals.length * 2));
+                        }
+                        Arrays.fill(locals, fp, localsTop, 0);
+                        pc = entries[function];
+                        break;
+                    }
+                    case Opcode.RETURN:
+                        localsTop = fp;
+                        pc = returnPcs[--calls];
+                        fp = framePointers[calls];
+                        break;
+                    case Opcode.READ_GLOBAL:
+                        globals[code[pc++]] = io.read();
+                        break;
+                    case Opcode.READ_LOCAL:
+                        locals[fp + code[pc++]] = io.read();
+                        break;
+                    case Opcode.WRITE:
+                        io.write(stack[--sp]);
+                        break;
+                    case Opcode.HALT:
+                        return;
+                    default:
+                        throw new IllegalStateException("Bad opcode " + code[at] + " at " + at);
+                }
+            }
+        } catch (ArithmeticException e) {
+            throw new RuntimeError("Division by zero", program.line(at));
+        } catch (EOFException e) {
+            throw new RuntimeError("Input ended", program.line(at));
+        } catch (NumberFormatException e) {
+            throw new RuntimeError("Input is not a number: " + e.getMessage(), program.line(at));
+        } finally {
+            executed = count;
+            io.flush();
+        }
+    }
+}
@@ -1,26 +1,47 @@
 package com.example.comp439_mohammad;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextArea;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 
 public class main extends Application {
 
+    // Diagnostics shown in the text area; the rest are only counted.
+    private static final int MAX_SHOWN = 10_000;
+
+    private ParseTask running;
+
     @Override
     public void start(Stage primaryStage) {
         Button chooseFileButton = new Button("Choose File");
+        Button cancelButton = new Button("Cancel");
+        cancelButton.setDisable(true);
+        ProgressBar progressBar = new ProgressBar(0);
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(progressBar, Priority.ALWAYS);
+        Label statusLabel = new Label();
         TextArea errorTextArea = new TextArea();
         errorTextArea.setEditable(false);
         errorTextArea.setWrapText(true);
+        VBox.setVgrow(errorTextArea, Priority.ALWAYS);
 
-        VBox root = new VBox(10, chooseFileButton, errorTextArea);
+        HBox toolbar = new HBox(10, chooseFileButton, cancelButton, progressBar);
+        VBox root = new VBox(10, toolbar, statusLabel, errorTextArea);
 
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Select a File to Parse");
@@ -30,46 +51,159 @@ public class main extends Application {
         );
 
         chooseFileButton.setOnAction(event -> {
-            errorTextArea.clear();
-
             File selectedFile = fileChooser.showOpenDialog(primaryStage);
 
-            if (selectedFile != null) {
-                System.out.println("Selected file: " + selectedFile.getAbsolutePath());
+            if (selectedFile == null) {
+                errorTextArea.appendText("No file selected.\n");
+                return;
+            }
+            errorTextArea.clear();
 
-                try {
-                    List<ScannerLexer.Token> tokens = ScannerLexer.scanFile(selectedFile.getAbsolutePath());
-                    ScannerLexer.Parser parser = new ScannerLexer.Parser(tokens);
-                    try {
-                        parser.parse();
-                        System.out.println("Parsing completed successfully.");
-                        errorTextArea.appendText("Parsing completed successfully.\n look in Console ");
-                    } catch (ScannerLexer.Parser.MaxDepthExceededException e) {
-                        System.err.println("Error: " + e.getMessage());
-                        errorTextArea.appendText("Error: " + e.getMessage() + "\n");
-                    } catch (ScannerLexer.SyntaxError e) {
-                        System.err.println("Syntax Error: " + e.getMessage());
-                        errorTextArea.appendText("Syntax Error: " + e.getMessage() + "\n");
-                    }
-                } catch (ScannerLexer.SyntaxError e) {
-                    System.err.println("Syntax error: " + e.getMessage());
-                    errorTextArea.appendText("Syntax error: " + e.getMessage() + "\n");
-                } catch (Exception e) {
-                    e.printStackTrace();
+            ParseTask task = new ParseTask(selectedFile, errorTextArea::appendText);
+            running = task;
+            progressBar.progressProperty().bind(task.progressProperty());
+            statusLabel.textProperty().bind(task.messageProperty());
+            chooseFileButton.setDisable(true);
+            cancelButton.setDisable(false);
+
+            task.setOnSucceeded(done -> {
+                finish(chooseFileButton, cancelButton, progressBar, statusLabel);
+                errorTextArea.appendText(task.getValue() + "\n");
+            });
+            task.setOnCancelled(done -> {
+                finish(chooseFileButton, cancelButton, progressBar, statusLabel);
+                errorTextArea.appendText("Parsing cancelled.\n");
+            });
+            task.setOnFailed(done -> {
+                finish(chooseFileButton, cancelButton, progressBar, statusLabel);
+                Throwable e = task.getException();
+                if (e instanceof ScannerLexer.Parser.MaxDepthExceededException) {
+                    errorTextArea.appendText("Error: " + e.getMessage() + "\n");
+                } else {
                     errorTextArea.appendText("An unexpected error occurred: " + e.getMessage() + "\n");
                 }
-            } else {
-                System.out.println("No file selected.");
-                errorTextArea.appendText("No file selected.\n");
+            });
+
+            Thread.ofVirtual().name("parser").start(task);
+        });
+
+        cancelButton.setOnAction(event -> {
+            if (running != null) {
+                running.cancel();
             }
         });
 
         Scene scene = new Scene(root, 600, 400);
         primaryStage.setTitle("File Parser");
         primaryStage.setScene(scene);
+        primaryStage.setOnCloseRequest(event -> cancelButton.fire());
         primaryStage.show();
     }
 
+    private void finish(Button chooseFileButton, Button cancelButton, ProgressBar progressBar, Label statusLabel) {
+        running = null;
+        progressBar.progressProperty().unbind();
+        statusLabel.textProperty().unbind();
+        chooseFileButton.setDisable(false);
+        cancelButton.setDisable(true);
+    }
+
+    /**
+     * Scans and parses a file off the FX thread with recovery on and tracing off.
+     * Progress and diagnostics are published every {@link #BATCH} tokens, so the FX
+     * thread sees a bounded number of updates however large the file is.
+     */
+    private static final class ParseTask extends Task<String> {
+        private static final int BATCH = 1 << 14;
+
+        private final File file;
+        private final Consumer<String> output;
+
+        ParseTask(File file, Consumer<String> output) {
+            this.file = file;
+            this.output = output;
+        }
+
+        @Override
+        protected String call() throws Exception {
+            MappedLineReader reader = new MappedLineReader(file.toPath());
+            try (LexingTokenStream stream = new LexingTokenStream(reader)) {
+                ProgressStream tokens = new ProgressStream(stream, reader);
+                ScannerLexer.Parser parser = new ScannerLexer.Parser(tokens, TraceLevel.OFF, ParseListener.NONE);
+                parser.setRecovery(true);
+                tokens.diagnostics = parser.diagnostics();
+                try {
+                    parser.parse();
+                } catch (ScannerLexer.SyntaxError e) {
+                    parser.diagnostics().add(Diagnostic.of(e));
+                }
+                tokens.publish();
+
+                int errors = parser.diagnostics().size();
+                String summary = reader.lineNumber() + " lines, " + tokens.position() + " tokens";
+                if (errors == 0) {
+                    return "Parsing completed successfully: " + summary + ".";
+                }
+                String hidden = errors > MAX_SHOWN ? " (" + (errors - MAX_SHOWN) + " not shown)" : "";
+                return errors + " syntax errors" + hidden + ": " + summary + ".";
+            }
+        }
+
+        /**
+         * Passes tokens through to the parser, stopping it once the task is cancelled and
+         * reporting progress and new diagnostics as it goes.
+         */
+        private final class ProgressStream implements TokenStream {
+            private final TokenStream tokens;
+            private final MappedLineReader reader;
+            private List<Diagnostic> diagnostics = List.of();
+            private int shown;
+            private int untilPublish = BATCH;
+
+            ProgressStream(TokenStream tokens, MappedLineReader reader) {
+                this.tokens = tokens;
+                this.reader = reader;
+            }
+
+            @Override
+            public ScannerLexer.Token peek(int offset) throws ScannerLexer.SyntaxError {
+                return tokens.peek(offset);
+            }
+
+            @Override
+            public ScannerLexer.Token advance() throws ScannerLexer.SyntaxError {
+                if (--untilPublish == 0) {
+                    untilPublish = BATCH;
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    publish();
+                }
+                return tokens.advance();
+            }
+
+            @Override
+            public int position() {
+                return tokens.position();
+            }
+
+            void publish() {
+                updateProgress(reader.bytesRead(), reader.size());
+                updateMessage(reader.lineNumber() + " lines, " + reader.bytesRead() / 1024 + " KB of "
+                        + reader.size() / 1024 + " KB");
+                int end = Math.min(diagnostics.size(), MAX_SHOWN);
+                if (shown < end) {
+                    StringBuilder batch = new StringBuilder();
+                    for (; shown < end; shown++) {
+                        batch.append(diagnostics.get(shown)).append('\n');
+                    }
+                    String text = batch.toString();
+                    Platform.runLater(() -> output.accept(text));
+                }
+            }
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -1,6 +1,8 @@
 module com.example.comp439_mohammad {
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.jfr;
+    requires jdk.management;
 
 
     opens com.example.comp439_mohammad to javafx.fxml;
@@ -0,0 +1,83 @@
+package com.example.comp439_mohammad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link DfaScanner} against a table of lines and the tokens they must give, as
+ * {@code type value column}. Each line is also scanned as a whole source through
+ * {@link TokenBuffer}, whose columns come from its {@link SourceMap} instead.
+ */
+class DfaScannerTest {
+
+    private static final String[][] TABLE = {
+            {"#include <stdio>;",
+                    "ReservedWord #include 1", "Punctuation < 10", "Identifier stdio 11", "Punctuation > 16",
+                    "Punctuation ; 17"},
+            {"  var int a1, _b2;",
+                    "ReservedWord var 3", "Identifier int 7", "Identifier a1 11", "Punctuation , 13",
+                    "Identifier _b2 15", "Punctuation ; 18"},
+            {"x:=y=<z=>w=!v<>u",
+                    "Identifier x 1", "Operator := 2", "Identifier y 4", "Operator =< 5", "Identifier z 7",
+                    "Operator => 8", "Identifier w 10", "Operator =! 11", "Identifier v 13", "Operator < 14",
+                    "Operator > 15", "Identifier u 16"},
+            {"x=5",
+                    "Identifier x 1", "Operator = 2", "Number 5 3"},
+            {"cout << 3.25;",
+                    "ReservedWord cout 1", "Operator < 6", "Operator < 7", "Number 3.25 9", "Punctuation ; 13"},
+            {"x := 10 div 3 mod 2",
+                    "Identifier x 1", "Operator := 3", "Number 10 6", "Operator div 9", "Number 3 13",
+                    "Operator mod 15", "Number 2 19"},
+            {"if (a = b) c := -d * e",
+                    "ReservedWord if 1", "Punctuation ( 4", "Identifier a 5", "Operator = 7", "Identifier b 9",
+                    "Punctuation ) 10", "Identifier c 12", "Operator := 14", "Operator - 17", "Identifier d 18",
+                    "Operator * 20", "Identifier e 22"},
+            {"{x}",
+                    "Punctuation { 1", "Identifier x 2", "Punctuation } 3"},
+            {" \t "},
+    };
+
+    private static List<String> describe(List<ScannerLexer.Token> tokens) {
+        List<String> described = new ArrayList<>();
+        for (ScannerLexer.Token token : tokens) {
+            described.add(token.type + " " + token.value + " " + token.column);
+        }
+        return described;
+    }
+
+    @Test
+    void table() throws ScannerLexer.SyntaxError {
+        for (String[] row : TABLE) {
+            List<String> expected = List.of(row).subList(1, row.length);
+            assertEquals(expected, describe(DfaScanner.tokenizeLine(row[0], 1)), row[0]);
+
+            TokenBuffer buffer = TokenBuffer.scan(row[0]);
+            List<ScannerLexer.Token> tokens = new ArrayList<>();
+            for (int i = 0; i < buffer.size(); i++) {
+                tokens.add(buffer.token(i));
+            }
+            assertEquals(expected, describe(tokens), "TokenBuffer: " + row[0]);
+        }
+    }
+
+    @Test
+    void lexicalErrors() {
+        String[][] errors = {
+                {"x @ y", "@", "3"},
+                {"3x", "3x", "1"},
+                {"x := 1.", "1.", "6"},
+                {"x :y", ":", "3"},
+        };
+        for (String[] error : errors) {
+            ScannerLexer.SyntaxError e = assertThrows(ScannerLexer.SyntaxError.class,
+                    () -> DfaScanner.tokenizeLine(error[0], 4), error[0]);
+            assertEquals("Unexpected token '" + error[1] + "' on line 4", e.getMessage(), error[0]);
+            assertEquals(Integer.parseInt(error[2]), e.column, error[0]);
+        }
+    }
+}
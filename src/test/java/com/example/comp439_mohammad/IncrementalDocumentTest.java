@@ -0,0 +1,205 @@
+package com.example.comp439_mohammad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Random line edits to an {@link IncrementalDocument} must leave it with the tree and
+ * diagnostics that a fresh {@link ScannerLexer.Parser} run gives for the same text.
+ */
+class IncrementalDocumentTest {
+
+    private static final String PROGRAM = """
+            #include <stdio>;
+            const int K = 3;
+            var int x, y, n;
+            function double;
+            var int t;
+            newb
+              t := x * 2;
+              x := t;
+            endb;
+            function count;
+            newb
+              n := 0;
+              while (n < K) newb
+                n := n + 1;
+                call double;
+              endb;
+            endb;
+            newb
+              cin >> x;
+              if (x > 0)
+                call count
+              else
+                x := 0 - x;
+              repeat
+                y := y + 1;
+                cout << y;
+              until y > K;
+              cout << x;
+            endb
+            exit
+            """;
+
+    /** Lines edits insert or replace lines with; the last two break no more than a statement. */
+    private static final String[] STATEMENTS = {
+            "  x := x + 1;", "  cout << x;", "  call count;", "  if (x = 1) cout << x;", "", "  ",
+            "  x := ;", "  x := 3 @ 4;",
+    };
+
+    /** Lines that change the structure of the program, so units have to be found again. */
+    private static final String[] STRUCTURE = {
+            "  while (x < 2) newb", "  endb;", "newb", "endb;", "function half;", "var int h;", "  repeat",
+            "  until x = 1;", "const int J = 4;", "exit",
+    };
+
+    @Test
+    void randomEditsMatchAFreshParse() {
+        Random random = new Random(439);
+        for (int run = 0; run < 200; run++) {
+            List<String> text = new ArrayList<>(List.of(PROGRAM.split("\n")));
+            IncrementalDocument document = new IncrementalDocument(String.join("\n", text));
+            for (int edit = 0; edit < 20; edit++) {
+                int from = random.nextInt(text.size() + 1);
+                int to = from;
+                List<String> replacement = new ArrayList<>();
+                int kind = random.nextInt(10);
+                if (kind < 4) {
+                    // Whitespace only, the common case while typing.
+                    to = Math.min(text.size(), from + 1);
+                    for (int i = from; i < to; i++) replacement.add(text.get(i) + " ");
+                } else if (kind < 9) {
+                    // Statements go in after another statement, mostly keeping the structure.
+                    from = statementBoundary(text, from);
+                    to = from;
+                    if (from < text.size() && text.get(from).strip().endsWith(";") && random.nextBoolean()) {
+                        to = from + 1;
+                    }
+                    for (int i = random.nextInt(3); i > 0; i--) {
+                        replacement.add(STATEMENTS[random.nextInt(STATEMENTS.length)]);
+                    }
+                } else {
+                    to = Math.min(text.size(), from + random.nextInt(2));
+                    replacement.add(STRUCTURE[random.nextInt(STRUCTURE.length)]);
+                }
+                document.replaceLines(from, to, replacement);
+                text.subList(from, to).clear();
+                text.addAll(from, replacement);
+
+                String source = String.join("\n", text);
+                String where = "run " + run + ", edit " + edit + ":\n" + source;
+                assertEquals(fresh(source), describe(document), where);
+                if (document.hasGarbage()) document.compact();
+            }
+        }
+    }
+
+    /**
+     * First line at or after {@code line} that follows a statement or a {@code newb}, or
+     * {@code line} itself if there is none.
+     */
+    private static int statementBoundary(List<String> text, int line) {
+        for (int i = Math.max(1, line); i < text.size(); i++) {
+            String previous = text.get(i - 1).strip();
+            if (text.get(i - 1).startsWith("  ") && previous.endsWith(";") || previous.endsWith("newb")) {
+                return i;
+            }
+        }
+        return line;
+    }
+
+    private static String fresh(String source) {
+        Ast ast = new Ast(256);
+        ScannerLexer.Parser parser = new ScannerLexer.Parser(new LexingTokenStream(new TextLineReader(source)),
+                TraceLevel.OFF, ParseListener.NONE, ast);
+        parser.setRecovery(true);
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        StringBuilder out = new StringBuilder();
+        try {
+            parser.parse();
+            tree(out, ast, ast.root(), null);
+            diagnostics.addAll(parser.diagnostics());
+        } catch (ScannerLexer.SyntaxError e) {
+            diagnostics.addAll(parser.diagnostics());
+            diagnostics.add(Diagnostic.of(e));
+        }
+        return out.append(diagnostics).toString();
+    }
+
+    private static String describe(IncrementalDocument document) {
+        StringBuilder out = new StringBuilder();
+        if (document.program() != Ast.NIL) {
+            tree(out, document.ast(), document.program(), document);
+        }
+        return out.append(document.diagnostics()).toString();
+    }
+
+    /**
+     * One line per node, children indented, in the slot layout documented on {@link Ast}.
+     */
+    private static void tree(StringBuilder out, Ast ast, int first, IncrementalDocument document) {
+        tree(out, ast, first, document, "");
+    }
+
+    private static void tree(StringBuilder out, Ast ast, int first, IncrementalDocument document, String indent) {
+        for (int node = first; node != Ast.NIL; node = ast.next(node)) {
+            byte kind = ast.kind(node);
+            int line = document != null ? document.line(node) : ast.line(node);
+            out.append(indent).append(Ast.kindName(kind)).append(" @").append(line);
+            String child = indent + "  ";
+            switch (kind) {
+                case Ast.PROGRAM:
+                    out.append('\n');
+                    tree(out, ast, ast.a(node), document, child);
+                    tree(out, ast, ast.b(node), document, child);
+                    tree(out, ast, ast.c(node), document, child);
+                    break;
+                case Ast.CONST_DECL:
+                    out.append(' ').append(ast.string(ast.a(node))).append(' ').append(ast.string(ast.b(node)))
+                            .append(' ').append(ast.string(ast.c(node))).append('\n');
+                    break;
+                case Ast.VAR_DECL:
+                case Ast.ASSIGN:
+                    out.append(' ').append(ast.string(ast.a(node))).append('\n');
+                    tree(out, ast, ast.b(node), document, child);
+                    break;
+                case Ast.FUNCTION_DECL:
+                    out.append(' ').append(ast.string(ast.a(node))).append('\n');
+                    tree(out, ast, ast.b(node), document, child);
+                    tree(out, ast, ast.c(node), document, child);
+                    break;
+                case Ast.BLOCK:
+                case Ast.COUT:
+                    out.append('\n');
+                    tree(out, ast, ast.a(node), document, child);
+                    break;
+                case Ast.IF:
+                case Ast.WHILE:
+                case Ast.REPEAT:
+                    out.append('\n');
+                    tree(out, ast, ast.a(node), document, child);
+                    tree(out, ast, ast.b(node), document, child);
+                    tree(out, ast, ast.c(node), document, child);
+                    break;
+                case Ast.BINARY_OP:
+                case Ast.CONDITION:
+                    out.append(' ').append(Symbol.text(ast.a(node))).append('\n');
+                    tree(out, ast, ast.b(node), document, child);
+                    tree(out, ast, ast.c(node), document, child);
+                    break;
+                case Ast.EXIT:
+                    out.append('\n');
+                    break;
+                default:
+                    // LIBRARY, CALL, CIN, NAME and NUMBER hold a name or literal.
+                    out.append(' ').append(ast.string(ast.a(node))).append('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.comp439_mohammad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runtime errors in a program run as a JVM class must be reported at the same line as
+ * on the {@link VirtualMachine}.
+ */
+class JvmCompilerTest {
+
+    private static void assertSameAsVm(String expected, String source, String input) {
+        assertEquals(expected, TestPrograms.run(source, input, TestPrograms.Mode.VM_O0), "VM");
+        assertEquals(expected, TestPrograms.run(source, input, TestPrograms.Mode.JIT_O0), "JIT");
+    }
+
+    @Test
+    void divisionByZeroInLoopReachedByJumpingBack() {
+        String source = """
+                var int i, x;
+                newb
+                  i := 3;
+                  while (i > 0) newb
+                    i := i - 1;
+                    x := 10 div i;
+                    cout << x;
+                  endb;
+                endb
+                exit
+                """;
+        assertSameAsVm("5\n10\nerror at line 6: Division by zero\n", source, "");
+    }
+
+    @Test
+    void inputEndedInsideFunction() {
+        String source = """
+                var int n, total;
+                function add;
+                var int value;
+                newb
+                  cin >> value;
+                  total := total + value;
+                endb;
+                newb
+                  n := 0;
+                  repeat
+                    call add;
+                    n := n + 1;
+                  until n = 5;
+                  cout << total;
+                endb
+                exit
+                """;
+        assertSameAsVm("error at line 5: Input ended\n", source, "1 2 3");
+    }
+
+    @Test
+    void errorAfterCallOnSameLine() {
+        String source = """
+                var int x;
+                function f;
+                newb
+                  x := 0;
+                endb;
+                newb
+                  call f; x := 1 mod x;
+                endb
+                exit
+                """;
+        assertSameAsVm("error at line 7: Division by zero\n", source, "");
+    }
+
+    @Test
+    void inputNotANumber() {
+        String source = """
+                var int x;
+                newb
+                  cin >> x;
+                  cout << x;
+                endb
+                exit
+                """;
+        String message = assertThrows(NumberFormatException.class, () -> Double.parseDouble("abc")).getMessage();
+        assertSameAsVm("error at line 3: Input is not a number: " + message + "\n", source, "abc");
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.comp439_mohammad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The {@link Optimizer} must not change what a program does: every program here gives the
+ * same output, runtime errors included, at {@code -O0} and optimized, on the
+ * {@link VirtualMachine} and as a JVM class.
+ */
+class OptimizerTest {
+
+    /** Operators have no precedence here: {@code 1 / a + b} is {@code (1 / a) + b}, left to right. */
+    private static final String ARITHMETIC = """
+            const int K = 2;
+            var int x, y;
+            newb
+              cin >> x;
+              y := 1 / (x + 0);
+              cout << y;
+              y := 1 / (0 + x);
+              cout << y;
+              y := 1 / (x - 0);
+              cout << y;
+              y := 1 / (x * 1) + 1 / (1 * x) + 1 / (x / 1);
+              cout << y;
+              y := x * 0;
+              cout << y;
+              y := K * 3 - 0 + (7 div K) + (7 mod K) + K / 4;
+              cout << y;
+              if (K > 1) cout << K else cout << x;
+              while (K < 0) newb
+                cout << x;
+              endb;
+              repeat
+                y := y + K;
+              until K = 2;
+              cout << y;
+            endb
+            exit
+            """;
+
+    private static final String EXITS_AND_ERRORS = """
+            const int Z = 0;
+            var int x, r;
+            function check;
+            newb
+              if (x = Z) exit
+              else newb
+                r := 100 div (x - 7);
+                cout << r;
+              endb;
+            endb;
+            newb
+              repeat
+                cin >> x;
+                call check;
+              until x = 1;
+              r := 1 mod Z;
+            endb
+            exit
+            """;
+
+    private static final String FOLDED_IF = """
+            const int K = 2;
+            var int x;
+            newb
+              if (K > 1)
+                x := 1 div (K - 2)
+              else
+                x := 1 mod (K - 2);
+              if (K < 1)
+                cout << K
+              else
+                x := 1 div (x * 0);
+            endb
+            exit
+            """;
+
+    private static void assertSameInEveryMode(String expected, String source, String input) {
+        for (TestPrograms.Mode mode : TestPrograms.Mode.values()) {
+            assertEquals(expected, TestPrograms.run(source, input, mode), mode + " on input '" + input + "'");
+        }
+    }
+
+    @Test
+    void negativeZero() {
+        assertSameInEveryMode("Infinity\nInfinity\n-Infinity\n-Infinity\n0\n3\n2\n5\n", ARITHMETIC, "-0");
+    }
+
+    @Test
+    void zero() {
+        assertSameInEveryMode("Infinity\nInfinity\nInfinity\nInfinity\n0\n3\n2\n5\n", ARITHMETIC, "0");
+    }
+
+    @Test
+    void infinity() {
+        assertSameInEveryMode("0\n0\n0\n0\nNaN\n3\n2\n5\n", ARITHMETIC, "Infinity");
+        assertSameInEveryMode("0\n0\n0\n0\nNaN\n3\n2\n5\n", ARITHMETIC, "-Infinity");
+    }
+
+    @Test
+    void ordinaryNumber() {
+        assertSameInEveryMode("0.25\n0.25\n0.25\n0.328125\n0\n3\n2\n5\n", ARITHMETIC, "4");
+    }
+
+    @Test
+    void exitInsideFunction() {
+        assertSameInEveryMode("-50\n100\n", EXITS_AND_ERRORS, "5 8 0 1");
+    }
+
+    @Test
+    void runtimeErrorInFunction() {
+        assertSameInEveryMode("-50\nerror at line 7: Division by zero\n", EXITS_AND_ERRORS, "5 7");
+    }
+
+    @Test
+    void runtimeErrorInMain() {
+        assertSameInEveryMode("-16\nerror at line 16: Division by zero\n", EXITS_AND_ERRORS, "1");
+    }
+
+    @Test
+    void inputEnded() {
+        assertSameInEveryMode("-50\nerror at line 13: Input ended\n", EXITS_AND_ERRORS, "5");
+    }
+
+    @Test
+    void errorInFoldedIfKeepsItsLine() {
+        assertSameInEveryMode("error at line 5: Division by zero\n", FOLDED_IF, "");
+        String elseTaken = FOLDED_IF.replace("if (K > 1)", "if (K < 1)");
+        assertSameInEveryMode("error at line 7: Division by zero\n", elseTaken, "");
+        String secondIf = FOLDED_IF.replace("x := 1 div (K - 2)", "x := 1");
+        assertSameInEveryMode("error at line 11: Division by zero\n", secondIf, "");
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.comp439_mohammad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Generated programs written to a {@link ParsedFile} and read back must give the same
+ * tokens and the same {@link Ast}, node for node.
+ */
+class ParsedFileTest {
+
+    @Test
+    void everyKindHasASlotLayout() {
+        for (byte kind = 0; kind < Ast.kindCount(); kind++) {
+            int slots = Ast.nodeSlots(kind);
+            assertEquals(0, slots & ~(Ast.SLOT_A | Ast.SLOT_B | Ast.SLOT_C), Ast.kindName(kind));
+        }
+        assertThrows(IllegalArgumentException.class, () -> Ast.nodeSlots((byte) Ast.kindCount()));
+    }
+
+    @Test
+    void generatedProgramsRoundTrip() throws IOException, ScannerLexer.SyntaxError {
+        Path file = Files.createTempFile("parsed", ".c439");
+        try {
+            for (int seed = 0; seed < 150; seed++) {
+                ProgramGenerator generator = new ProgramGenerator(seed);
+                generator.setLines(20 + seed * 3);
+                generator.setFunctions(seed % 5);
+                StringWriter source = new StringWriter();
+                generator.write(source);
+                roundTrip(file, source.toString(), false, "seed " + seed);
+                roundTrip(file, source.toString(), true, "seed " + seed + ", optimized");
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void roundTrip(Path file, String source, boolean optimize, String where)
+            throws IOException, ScannerLexer.SyntaxError {
+        TokenBuffer tokens = TokenBuffer.scan(source);
+        ScannerLexer.Parser parser = new ScannerLexer.Parser(tokens.stream(), TraceLevel.OFF, ParseListener.NONE);
+        Ast ast = parser.parse();
+        if (optimize) {
+            Optimizer.optimize(ast);
+        } else {
+            assertLayoutMatches(ast, where);
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            ParsedFile.write(out, tokens, ast);
+        }
+
+        ParsedFile parsed = ParsedFile.open(file);
+        assertEquals(tokens.size(), parsed.tokenCount(), where);
+        ParsedFile.Tokens read = parsed.tokens();
+        for (int i = 0; i < tokens.size(); i++) {
+            assertTrue(read.next(), where);
+            String token = where + ", token " + i;
+            assertEquals(tokens.kind(i), read.kind(), token);
+            assertEquals(tokens.symbol(i), read.symbol(), token);
+            assertEquals(tokens.text(i), read.text(), token);
+            assertEquals(tokens.start(i), read.start(), token);
+            assertEquals(tokens.length(i), read.length(), token);
+            assertEquals(tokens.line(i), read.line(), token);
+            assertEquals(tokens.column(i), read.column(), token);
+        }
+        assertFalse(read.next(), where);
+
+        Ast copy = parsed.ast();
+        assertEquals(ast.size(), copy.size(), where);
+        assertEquals(ast.root(), copy.root(), where);
+        for (int id = 0; id < ast.stringCount(); id++) {
+            assertEquals(ast.string(id), copy.string(id), where);
+        }
+        for (int node = 0; node < ast.size(); node++) {
+            String at = where + ", node " + node;
+            assertEquals(ast.kind(node), copy.kind(node), at);
+            assertEquals(ast.a(node), copy.a(node), at);
+            assertEquals(ast.b(node), copy.b(node), at);
+            assertEquals(ast.c(node), copy.c(node), at);
+            assertEquals(ast.next(node), copy.next(node), at);
+            assertEquals(ast.line(node), copy.line(node), at);
+        }
+    }
+
+    /**
+     * Every node of a fresh parse is reached exactly once, through {@code next} or a slot
+     * {@link Ast#nodeSlots} says holds a node, so the layout misses no node slot and claims
+     * none that holds something else. The root and the program's closing {@code exit}, which
+     * nothing links to, are reached no times.
+     */
+    private static void assertLayoutMatches(Ast ast, String where) {
+        int[] references = new int[ast.size()];
+        for (int node = 0; node < ast.size(); node++) {
+            int slots = Ast.nodeSlots(ast.kind(node));
+            if ((slots & Ast.SLOT_A) != 0) reference(references, ast.a(node), where);
+            if ((slots & Ast.SLOT_B) != 0) reference(references, ast.b(node), where);
+            if ((slots & Ast.SLOT_C) != 0) reference(references, ast.c(node), where);
+            reference(references, ast.next(node), where);
+        }
+        for (int node = 0; node < ast.size(); node++) {
+            int expected = node == ast.root() || node == ast.size() - 2 && ast.kind(node) == Ast.EXIT ? 0 : 1;
+            assertEquals(expected, references[node],
+                    where + ", references to " + Ast.kindName(ast.kind(node)) + " " + node);
+        }
+    }
+
+    private static void reference(int[] references, int node, String where) {
+        if (node == Ast.NIL) return;
+        assertTrue(node >= 0 && node < references.length, where + ", no node " + node);
+        references[node]++;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.comp439_mohammad;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Compiles and runs test programs the way {@code Cli run} does, with output captured.
+ */
+final class TestPrograms {
+
+    enum Mode {
+        /** Bytecode on the {@link VirtualMachine}, not optimized ({@code -O0}). */
+        VM_O0,
+        /** Optimized bytecode on the {@link VirtualMachine}. */
+        VM,
+        /** Bytecode run as a JVM class, not optimized. */
+        JIT_O0,
+        /** Optimized bytecode run as a JVM class ({@code -jit}). */
+        JIT
+    }
+
+    private TestPrograms() {
+    }
+
+    static Ast check(String source) {
+        try {
+            ScannerLexer.Parser parser = new ScannerLexer.Parser(TokenBuffer.scan(source).stream(),
+                    TraceLevel.OFF, ParseListener.NONE);
+            Ast ast = parser.parse();
+            List<Diagnostic> diagnostics = SemanticAnalyzer.analyze(ast);
+            if (!diagnostics.isEmpty()) {
+                throw new AssertionError("Test program does not check: " + diagnostics);
+            }
+            return ast;
+        } catch (ScannerLexer.SyntaxError e) {
+            throw new AssertionError("Test program does not parse: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Output of the program, one number per line, followed by {@code error at line N: message}
+     * if it stopped with a runtime error.
+     */
+    static String run(String source, String input, Mode mode) {
+        Ast ast = check(source);
+        if (mode == Mode.VM || mode == Mode.JIT) {
+            Optimizer.optimize(ast);
+        }
+        Bytecode program = BytecodeCompiler.compile(ast);
+        StringWriter out = new StringWriter();
+        ProgramIo io = ProgramIo.of(new StringReader(input), out);
+        try {
+            if (mode == Mode.JIT || mode == Mode.JIT_O0) {
+                JvmCompiler.compile(program).run(io);
+            } else {
+                new VirtualMachine(program, io).run();
+            }
+        } catch (VirtualMachine.RuntimeError e) {
+            out.write("error at line " + e.line + ": " + e.getMessage() + "\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+}